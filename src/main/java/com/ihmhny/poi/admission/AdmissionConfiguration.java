@@ -0,0 +1,29 @@
+package com.ihmhny.poi.admission;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+/**
+ * 将准入控制挂到/import/**和/export/**接口之前
+ */
+@Configuration
+@EnableConfigurationProperties(AdmissionProperties.class)
+public class AdmissionConfiguration extends WebMvcConfigurerAdapter {
+
+	@Autowired
+	private AdmissionProperties properties;
+
+	@Autowired
+	private AdmissionManager admissionManager;
+
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		if (properties.isEnabled()) {
+			registry.addInterceptor(new AdmissionInterceptor(admissionManager, properties))
+					.addPathPatterns("/import/**", "/export/**");
+		}
+	}
+}
@@ -0,0 +1,142 @@
+package com.ihmhny.poi.admission;
+
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.security.Principal;
+import java.util.Locale;
+
+/**
+ * 在导入导出接口之前执行准入控制，请求完成后归还预留的内存。
+ * <p>
+ * 行列数取自请求参数rows、columns，模型取自参数mode。只有带请求体的上传（POST/PUT）
+ * 可以省略行列数，此时按请求体大小估算单元格数；导出必须给出行列数，否则返回400。
+ * 行列数只是提示，处理器应通过{@link #getPermit(HttpServletRequest)}取得额度，
+ * 并按实际处理的行列数调用{@link AdmissionPermit#ensureCovers(long, int)}。
+ * <p>
+ * 租户优先取已认证用户的名称；未认证的请求必须在请求头中给出租户，且该租户须在
+ * poi.admission.tenants中列出，否则返回400。客户端因此无法靠轮换请求头得到新的突发额度，
+ * 不带请求头的请求也不会挤在同一个共享的桶里互相限流。
+ * <p>
+ * 异步请求（Callable、StreamingResponseBody等）在首次分派时准入，
+ * 异步结束后的ASYNC分派中不再重复准入，并在该次分派的afterCompletion中归还额度。
+ */
+public class AdmissionInterceptor implements AsyncHandlerInterceptor {
+
+	private static final String PERMIT_ATTRIBUTE = AdmissionInterceptor.class.getName() + ".PERMIT";
+
+	private final AdmissionManager admissionManager;
+
+	private final AdmissionProperties properties;
+
+	public AdmissionInterceptor(AdmissionManager admissionManager, AdmissionProperties properties) {
+		this.admissionManager = admissionManager;
+		this.properties = properties;
+	}
+
+	/**
+	 * 取得当前请求已预留的额度，未经准入时返回null
+	 */
+	public static AdmissionPermit getPermit(HttpServletRequest request) {
+		Object permit = request.getAttribute(PERMIT_ATTRIBUTE);
+		return permit instanceof AdmissionPermit ? (AdmissionPermit) permit : null;
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		if (request.getDispatcherType() == DispatcherType.ASYNC || getPermit(request) != null) {
+			return true;
+		}
+		String tenant = resolveTenant(request);
+		ExcelMode mode = properties.getDefaultMode();
+		String modeParameter = request.getParameter("mode");
+		if (StringUtils.hasText(modeParameter)) {
+			try {
+				mode = ExcelMode.valueOf(modeParameter.trim().toUpperCase(Locale.ROOT));
+			} catch (IllegalArgumentException e) {
+				throw new InvalidAdmissionRequestException("Unknown mode: " + modeParameter);
+			}
+		}
+
+		long rows = parseSize(request, "rows");
+		long columns = parseSize(request, "columns");
+		AdmissionPermit permit;
+		if (rows >= 0 && columns >= 0) {
+			permit = admissionManager.admit(tenant, rows, (int) Math.min(columns, Integer.MAX_VALUE), mode);
+		} else if (isUpload(request)) {
+			long cells = request.getContentLengthLong() / properties.getUploadBytesPerCell();
+			permit = admissionManager.admit(tenant, cells, 1, mode);
+		} else {
+			throw new InvalidAdmissionRequestException("Parameters rows and columns are required");
+		}
+		request.setAttribute(PERMIT_ATTRIBUTE, permit);
+		return true;
+	}
+
+	@Override
+	public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+						   ModelAndView modelAndView) {
+	}
+
+	@Override
+	public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+											   Object handler) {
+		// 异步处理仍在进行，额度保留到ASYNC分派结束
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+		AdmissionPermit permit = getPermit(request);
+		if (permit != null) {
+			permit.close();
+			request.removeAttribute(PERMIT_ATTRIBUTE);
+		}
+	}
+
+	/**
+	 * 已认证的请求取用户名称，未认证的请求取请求头且只接受配置中列出的租户
+	 */
+	private String resolveTenant(HttpServletRequest request) {
+		Principal principal = request.getUserPrincipal();
+		if (principal != null) {
+			return principal.getName();
+		}
+		if (properties.getTenants().isEmpty()) {
+			throw new InvalidAdmissionRequestException(
+					"Unauthenticated requests are not accepted unless poi.admission.tenants is configured");
+		}
+		String tenant = request.getHeader(properties.getTenantHeader());
+		if (!StringUtils.hasText(tenant)) {
+			throw new InvalidAdmissionRequestException("Header " + properties.getTenantHeader() + " is required");
+		}
+		return tenant.trim();
+	}
+
+	/**
+	 * 带请求体的上传请求，分块传输时长度未知，不能据此估算
+	 */
+	private static boolean isUpload(HttpServletRequest request) {
+		String method = request.getMethod();
+		return ("POST".equals(method) || "PUT".equals(method)) && request.getContentLengthLong() > 0;
+	}
+
+	private static long parseSize(HttpServletRequest request, String name) {
+		String value = request.getParameter(name);
+		if (!StringUtils.hasText(value)) {
+			return -1;
+		}
+		try {
+			long size = Long.parseLong(value.trim());
+			if (size < 0) {
+				throw new InvalidAdmissionRequestException("Parameter " + name + " must not be negative");
+			}
+			return size;
+		} catch (NumberFormatException e) {
+			throw new InvalidAdmissionRequestException("Parameter " + name + " is not a number: " + value);
+		}
+	}
+}
@@ -0,0 +1,225 @@
+package com.ihmhny.poi.admission;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * 导入导出的准入控制。
+ * <p>
+ * 每个请求先经过所属租户的令牌桶限流，再按行数×列数×模型估算堆内存，
+ * 从全局预算中预留；预算不足时按到达顺序排队，超过最大等待时间则拒绝。
+ * 这样单个租户的大导出只会让自己排队，而不会把整个JVM拖进频繁GC。
+ * <p>
+ * 排队是在调用线程上阻塞完成的，排队期间占用一个servlet工作线程，因此同时排队的
+ * 请求数受max-queued-requests限制，超出时立即拒绝，不会占满容器线程池。
+ * 因预算不足被拒绝的请求会归还已取走的租户令牌。
+ */
+@Component
+public class AdmissionManager {
+
+	private static final long KILOBYTE = 1024;
+
+	/** 合法的租户标识：字母、数字、下划线、点、@和短横线，最长64个字符，可以是邮箱形式的用户名 */
+	private static final Pattern TENANT_PATTERN = Pattern.compile("[A-Za-z0-9_.@\\-]{1,64}");
+
+	/** 定期回收已补满的令牌桶的间隔 */
+	private static final long SWEEP_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+	private final AdmissionProperties properties;
+
+	private final LongSupplier ticker;
+
+	private final Semaphore budget;
+
+	private final int budgetKilobytes;
+
+	private final AtomicInteger queued = new AtomicInteger();
+
+	/** 依赖ConcurrentHashMap的compute对同一个键只调用一次且原子执行 */
+	private final ConcurrentHashMap<String, TokenBucket> tenantBuckets = new ConcurrentHashMap<>();
+
+	private final AtomicLong lastSweep;
+
+	@Autowired
+	public AdmissionManager(AdmissionProperties properties) {
+		this(properties, System::nanoTime);
+	}
+
+	AdmissionManager(AdmissionProperties properties, LongSupplier ticker) {
+		checkProperties(properties);
+		this.properties = properties;
+		this.ticker = ticker;
+		long budgetBytes = properties.getMemoryBudget() > 0
+				? properties.getMemoryBudget()
+				: Runtime.getRuntime().maxMemory() / 2;
+		this.budgetKilobytes = toKilobytes(budgetBytes);
+		// 公平模式保证先到的大请求不会被后来的小请求一直插队
+		this.budget = new Semaphore(budgetKilobytes, true);
+		this.lastSweep = new AtomicLong(ticker.getAsLong());
+	}
+
+	/**
+	 * 启动时校验配置，避免错误的配置到第一个请求才以500暴露出来
+	 */
+	private static void checkProperties(AdmissionProperties properties) {
+		if (!(properties.getTenantPermitsPerSecond() > 0)) {
+			throw new IllegalArgumentException("poi.admission.tenant-permits-per-second must be positive");
+		}
+		if (properties.getTenantBurst() < 1) {
+			throw new IllegalArgumentException("poi.admission.tenant-burst must be at least 1");
+		}
+		if (properties.getMaxQueuedRequests() < 0) {
+			throw new IllegalArgumentException("poi.admission.max-queued-requests must not be negative");
+		}
+		if (properties.getMaxTrackedTenants() <= 0) {
+			throw new IllegalArgumentException("poi.admission.max-tracked-tenants must be positive");
+		}
+		if (properties.getUploadBytesPerCell() <= 0) {
+			throw new IllegalArgumentException("poi.admission.upload-bytes-per-cell must be positive");
+		}
+	}
+
+	/**
+	 * 申请处理一个导入导出请求
+	 *
+	 * @param tenant  租户标识
+	 * @param rows    行数
+	 * @param columns 列数
+	 * @param mode    使用的POI模型
+	 * @return 已预留的额度，处理完毕后close
+	 * @throws InvalidAdmissionRequestException 租户标识不合法或未登记
+	 * @throws AdmissionRejectedException       租户超出速率、请求超出总预算或排队超时
+	 */
+	public AdmissionPermit admit(String tenant, long rows, int columns, ExcelMode mode) {
+		return admit(tenant, mode.estimateBytes(rows, columns), mode);
+	}
+
+	/**
+	 * 按已估算好的内存开销申请处理一个请求
+	 *
+	 * @param tenant        租户标识
+	 * @param estimateBytes 估算的堆内存字节数
+	 * @param mode          使用的POI模型，供{@link AdmissionPermit#ensureCovers(long, int)}追加额度
+	 * @return 已预留的额度，处理完毕后close
+	 * @throws InvalidAdmissionRequestException 租户标识不合法或未登记
+	 * @throws AdmissionRejectedException       租户超出速率、请求超出总预算或排队超时
+	 */
+	public AdmissionPermit admit(String tenant, long estimateBytes, ExcelMode mode) {
+		checkTenant(tenant);
+		int kilobytes = toKilobytes(estimateBytes);
+		if (kilobytes > budgetKilobytes) {
+			throw new AdmissionRejectedException("Request needs " + kilobytes + "KB, exceeding the total budget of "
+					+ budgetKilobytes + "KB; use a streaming mode or split the request");
+		}
+		TokenBucket bucket = acquireToken(tenant);
+		try {
+			reserve(kilobytes);
+		} catch (AdmissionRejectedException e) {
+			bucket.refund();
+			throw e;
+		}
+		return new AdmissionPermit(budget, mode, kilobytes);
+	}
+
+	private void reserve(int kilobytes) {
+		try {
+			// 超时为0的tryAcquire同样遵守公平顺序，不会插到排队请求之前
+			if (budget.tryAcquire(kilobytes, 0, TimeUnit.MILLISECONDS)) {
+				return;
+			}
+			if (queued.incrementAndGet() > properties.getMaxQueuedRequests()) {
+				queued.decrementAndGet();
+				throw new AdmissionRejectedException("Memory budget exhausted and "
+						+ properties.getMaxQueuedRequests() + " requests are already waiting");
+			}
+			try {
+				if (!budget.tryAcquire(kilobytes, properties.getMaxQueueMillis(), TimeUnit.MILLISECONDS)) {
+					throw new AdmissionRejectedException("Memory budget exhausted, waited "
+							+ properties.getMaxQueueMillis() + "ms for " + kilobytes + "KB");
+				}
+			} finally {
+				queued.decrementAndGet();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new AdmissionRejectedException("Interrupted while waiting for memory budget");
+		}
+	}
+
+	/**
+	 * 当前可用的预算，单位KB
+	 */
+	public int getAvailableKilobytes() {
+		return budget.availablePermits();
+	}
+
+	/**
+	 * 当前跟踪的租户令牌桶数量
+	 */
+	int getTrackedTenants() {
+		return tenantBuckets.size();
+	}
+
+	private void checkTenant(String tenant) {
+		if (tenant == null || !TENANT_PATTERN.matcher(tenant).matches()) {
+			throw new InvalidAdmissionRequestException("Invalid tenant id");
+		}
+		if (!properties.getTenants().isEmpty() && !properties.getTenants().contains(tenant)) {
+			throw new InvalidAdmissionRequestException("Unknown tenant: " + tenant);
+		}
+	}
+
+	/**
+	 * 从租户的令牌桶取走一个令牌，返回该桶以便被拒绝时归还。
+	 * 取令牌与回收在同一个compute中完成，不会在即将被回收的桶上扣减
+	 */
+	private TokenBucket acquireToken(String tenant) {
+		sweepPeriodically();
+		if (!tenantBuckets.containsKey(tenant) && tenantBuckets.size() >= properties.getMaxTrackedTenants()) {
+			evictFullBuckets();
+			if (tenantBuckets.size() >= properties.getMaxTrackedTenants()) {
+				throw new AdmissionRejectedException("Too many active tenants");
+			}
+		}
+		return tenantBuckets.compute(tenant, (key, bucket) -> {
+			TokenBucket current = bucket != null ? bucket : new TokenBucket(
+					properties.getTenantPermitsPerSecond(), properties.getTenantBurst(), ticker);
+			if (!current.tryAcquire()) {
+				// 异常从compute抛出时映射保持不变
+				throw new AdmissionRejectedException("Rate limit exceeded for tenant " + tenant);
+			}
+			return current;
+		});
+	}
+
+	private void sweepPeriodically() {
+		long last = lastSweep.get();
+		long now = ticker.getAsLong();
+		if (now - last >= SWEEP_INTERVAL_NANOS && lastSweep.compareAndSet(last, now)) {
+			evictFullBuckets();
+		}
+	}
+
+	/**
+	 * 回收已补满的桶：补满的桶与新建的桶等价，回收后再来的请求不会多得到突发额度。
+	 * 判断与移除在computeIfPresent中原子完成
+	 */
+	private void evictFullBuckets() {
+		for (String tenant : tenantBuckets.keySet()) {
+			tenantBuckets.computeIfPresent(tenant, (key, bucket) -> bucket.isFull() ? null : bucket);
+		}
+	}
+
+	static int toKilobytes(long bytes) {
+		long kilobytes = bytes / KILOBYTE + (bytes % KILOBYTE == 0 ? 0 : 1);
+		return (int) Math.min(kilobytes, Integer.MAX_VALUE);
+	}
+}
@@ -0,0 +1,66 @@
+package com.ihmhny.poi.admission;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * 已预留的内存额度，请求处理完毕后必须close归还，重复close无副作用。
+ * <p>
+ * 准入时的行列数只是调用方给出的提示，处理器拿到实际行列数后应调用
+ * {@link #ensureCovers(long, int)}，超出部分从预算中补足，补不足时拒绝。
+ */
+public final class AdmissionPermit implements AutoCloseable {
+
+	private final Semaphore budget;
+
+	private final ExcelMode mode;
+
+	private int kilobytes;
+
+	private boolean released;
+
+	AdmissionPermit(Semaphore budget, ExcelMode mode, int kilobytes) {
+		this.budget = budget;
+		this.mode = mode;
+		this.kilobytes = kilobytes;
+	}
+
+	/**
+	 * 预留的内存，单位KB
+	 */
+	public synchronized int getKilobytes() {
+		return kilobytes;
+	}
+
+	public ExcelMode getMode() {
+		return mode;
+	}
+
+	/**
+	 * 确保额度足以处理rows行、columns列，不足时立即从预算中追加，不排队等待
+	 *
+	 * @throws AdmissionRejectedException 预算不足以追加
+	 */
+	public synchronized void ensureCovers(long rows, int columns) {
+		if (released) {
+			throw new IllegalStateException("Permit already released");
+		}
+		int needed = AdmissionManager.toKilobytes(mode.estimateBytes(rows, columns));
+		if (needed <= kilobytes) {
+			return;
+		}
+		// 已在处理中的请求直接插队追加，尽快完成以归还额度
+		if (!budget.tryAcquire(needed - kilobytes)) {
+			throw new AdmissionRejectedException("Memory budget exhausted, " + rows + " rows x " + columns
+					+ " columns need " + needed + "KB but only " + kilobytes + "KB was reserved");
+		}
+		kilobytes = needed;
+	}
+
+	@Override
+	public synchronized void close() {
+		if (!released) {
+			released = true;
+			budget.release(kilobytes);
+		}
+	}
+}
@@ -0,0 +1,140 @@
+package com.ihmhny.poi.admission;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 导入导出准入控制的配置，前缀为poi.admission
+ */
+@ConfigurationProperties(prefix = "poi.admission")
+public class AdmissionProperties {
+
+	/** 是否启用准入控制 */
+	private boolean enabled = true;
+
+	/** 所有请求共享的内存预算（字节），不大于0时取最大堆的一半 */
+	private long memoryBudget = 0;
+
+	/**
+	 * 预算不足时最多排队等待的毫秒数，超时后拒绝。
+	 * 排队期间请求一直占用一个servlet工作线程，需与max-queued-requests一起按容器线程池大小设置
+	 */
+	private long maxQueueMillis = 5000;
+
+	/** 同时排队等待预算的请求上限，超出时立即拒绝，避免排队请求占满容器线程池 */
+	private int maxQueuedRequests = 16;
+
+	/** 每个租户每秒允许的请求数 */
+	private double tenantPermitsPerSecond = 2;
+
+	/** 每个租户允许的突发请求数 */
+	private int tenantBurst = 5;
+
+	/** 未认证的请求用来标识租户的请求头 */
+	private String tenantHeader = "X-Tenant-Id";
+
+	/**
+	 * 允许的租户。为空时只接受已认证的请求，以用户名称作为租户；
+	 * 配置后未认证的请求可以通过请求头指定其中的租户，已认证用户的名称也须在其中
+	 */
+	private Set<String> tenants = new HashSet<>();
+
+	/** 同时跟踪的租户令牌桶上限，已补满的桶会被回收，回收后仍超出时拒绝新租户 */
+	private int maxTrackedTenants = 10000;
+
+	/** 请求未指定mode时使用的模型 */
+	private ExcelMode defaultMode = ExcelMode.XSSF;
+
+	/** 上传导入未给出行列数时，按请求体每多少字节一个单元格估算 */
+	private int uploadBytesPerCell = 10;
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public long getMemoryBudget() {
+		return memoryBudget;
+	}
+
+	public void setMemoryBudget(long memoryBudget) {
+		this.memoryBudget = memoryBudget;
+	}
+
+	public long getMaxQueueMillis() {
+		return maxQueueMillis;
+	}
+
+	public void setMaxQueueMillis(long maxQueueMillis) {
+		this.maxQueueMillis = maxQueueMillis;
+	}
+
+	public int getMaxQueuedRequests() {
+		return maxQueuedRequests;
+	}
+
+	public void setMaxQueuedRequests(int maxQueuedRequests) {
+		this.maxQueuedRequests = maxQueuedRequests;
+	}
+
+	public double getTenantPermitsPerSecond() {
+		return tenantPermitsPerSecond;
+	}
+
+	public void setTenantPermitsPerSecond(double tenantPermitsPerSecond) {
+		this.tenantPermitsPerSecond = tenantPermitsPerSecond;
+	}
+
+	public int getTenantBurst() {
+		return tenantBurst;
+	}
+
+	public void setTenantBurst(int tenantBurst) {
+		this.tenantBurst = tenantBurst;
+	}
+
+	public String getTenantHeader() {
+		return tenantHeader;
+	}
+
+	public void setTenantHeader(String tenantHeader) {
+		this.tenantHeader = tenantHeader;
+	}
+
+	public Set<String> getTenants() {
+		return tenants;
+	}
+
+	public void setTenants(Set<String> tenants) {
+		this.tenants = tenants;
+	}
+
+	public int getMaxTrackedTenants() {
+		return maxTrackedTenants;
+	}
+
+	public void setMaxTrackedTenants(int maxTrackedTenants) {
+		this.maxTrackedTenants = maxTrackedTenants;
+	}
+
+	public ExcelMode getDefaultMode() {
+		return defaultMode;
+	}
+
+	public void setDefaultMode(ExcelMode defaultMode) {
+		this.defaultMode = defaultMode;
+	}
+
+	public int getUploadBytesPerCell() {
+		return uploadBytesPerCell;
+	}
+
+	public void setUploadBytesPerCell(int uploadBytesPerCell) {
+		this.uploadBytesPerCell = uploadBytesPerCell;
+	}
+}
@@ -0,0 +1,15 @@
+package com.ihmhny.poi.admission;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 请求因租户限流或内存预算不足被拒绝，对外返回429
+ */
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class AdmissionRejectedException extends RuntimeException {
+
+	public AdmissionRejectedException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,45 @@
+package com.ihmhny.poi.admission;
+
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+/**
+ * 导入导出使用的POI模型，决定单个单元格在堆上的大致开销
+ */
+public enum ExcelMode {
+
+	/** HSSFWorkbook，.xls的记录模型 */
+	HSSF(256, Long.MAX_VALUE),
+
+	/** XSSFWorkbook，XMLBeans模型，全部行常驻内存 */
+	XSSF(1024, Long.MAX_VALUE),
+
+	/** SXSSFWorkbook，只有窗口内的行常驻内存，其余写入临时文件 */
+	SXSSF(1024, SXSSFWorkbook.DEFAULT_WINDOW_SIZE);
+
+	/** 每个请求与数据量无关的固定开销 */
+	private static final long BASE_BYTES = 1024 * 1024;
+
+	private final long bytesPerCell;
+
+	private final long residentRows;
+
+	ExcelMode(long bytesPerCell, long residentRows) {
+		this.bytesPerCell = bytesPerCell;
+		this.residentRows = residentRows;
+	}
+
+	/**
+	 * 估算处理rows行、columns列所需的堆内存
+	 *
+	 * @return 字节数
+	 */
+	public long estimateBytes(long rows, int columns) {
+		long residentCells = Math.min(Math.max(rows, 0), residentRows);
+		int safeColumns = Math.max(columns, 0);
+		long maxCells = (Long.MAX_VALUE - BASE_BYTES) / bytesPerCell;
+		if (safeColumns > 0 && residentCells > maxCells / safeColumns) {
+			return Long.MAX_VALUE;
+		}
+		return BASE_BYTES + residentCells * safeColumns * bytesPerCell;
+	}
+}
@@ -0,0 +1,15 @@
+package com.ihmhny.poi.admission;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 准入参数不合法（mode、rows、columns格式错误，缺少导出规模，租户标识不合法或未登记），对外返回400
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidAdmissionRequestException extends RuntimeException {
+
+	public InvalidAdmissionRequestException(String message) {
+		super(message);
+	}
+}
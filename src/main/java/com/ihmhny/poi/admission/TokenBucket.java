@@ -0,0 +1,64 @@
+package com.ihmhny.poi.admission;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 令牌桶：以固定速率补充令牌，最多积累capacity个，用于限制单个租户的请求速率
+ */
+final class TokenBucket {
+
+	private final double capacity;
+
+	private final double tokensPerNano;
+
+	private final LongSupplier ticker;
+
+	private double tokens;
+
+	private long lastRefill;
+
+	TokenBucket(double permitsPerSecond, double capacity, LongSupplier ticker) {
+		if (permitsPerSecond <= 0 || capacity < 1) {
+			throw new IllegalArgumentException("permitsPerSecond must be positive and capacity at least 1");
+		}
+		this.capacity = capacity;
+		this.tokensPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+		this.ticker = ticker;
+		this.tokens = capacity;
+		this.lastRefill = ticker.getAsLong();
+	}
+
+	/**
+	 * 尝试取走一个令牌，不等待
+	 */
+	synchronized boolean tryAcquire() {
+		refill();
+		if (tokens < 1) {
+			return false;
+		}
+		tokens -= 1;
+		return true;
+	}
+
+	/**
+	 * 归还一个令牌，用于请求在令牌之后的检查中被拒绝的情况
+	 */
+	synchronized void refund() {
+		tokens = Math.min(capacity, tokens + 1);
+	}
+
+	/**
+	 * 令牌是否已补满；补满的桶与新建的桶等价，可以安全地丢弃
+	 */
+	synchronized boolean isFull() {
+		refill();
+		return tokens >= capacity;
+	}
+
+	private void refill() {
+		long now = ticker.getAsLong();
+		tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+		lastRefill = now;
+	}
+}
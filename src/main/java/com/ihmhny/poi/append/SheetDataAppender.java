@@ -0,0 +1,350 @@
+package com.ihmhny.poi.append;
+
+import com.ihmhny.poi.format.ExcelDates;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.ss.util.CellReference;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 在sheet XML的sheetData末尾追加行，并更新dimension。
+ * <p>
+ * 已用区域优先取自dimension的ref，只需读到sheetData之前；没有dimension或ref为"A1"
+ * （Excel和SXSSF对空sheet及未知区域都这样写）时，才扫描整个sheetData得到区域。
+ * 追加时原样复制旧内容并改写dimension，复制过程中记下最后一行各列的样式，在sheetData结束前写入新行。
+ * 新单元格沿用最后一行同一列的样式，字符串以inlineStr写入，不改动sharedStrings.xml。
+ */
+final class SheetDataAppender {
+
+	private final boolean date1904;
+
+	private int firstRow = -1;
+
+	private int lastRow = -1;
+
+	private int firstColumn = -1;
+
+	private int lastColumn = -1;
+
+	SheetDataAppender(boolean date1904) {
+		this.date1904 = date1904;
+	}
+
+	/**
+	 * 从dimension读取已用区域，读到sheetData开始即停止
+	 *
+	 * @return 区域可用返回true；没有dimension或无法判断时返回false，需要调用{@link #scan(InputStream)}
+	 */
+	boolean readDimension(InputStream sheetXml) throws IOException {
+		XmlTagStream tags = new XmlTagStream(sheetXml);
+		while (tags.next(null)) {
+			if (tags.isEndTag()) {
+				continue;
+			}
+			if (tags.isElement("dimension")) {
+				return setUsedRange(tags.attribute("ref"));
+			}
+			if (tags.isElement("sheetData")) {
+				return false;
+			}
+		}
+		return false;
+	}
+
+	private boolean setUsedRange(String ref) {
+		// 空sheet也写"A1"，与只有A1一个单元格无法区分
+		if (ref == null || "A1".equals(ref)) {
+			return false;
+		}
+		CellRangeAddress range;
+		try {
+			range = CellRangeAddress.valueOf(ref);
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+		// "A:C"这类整列引用或无法识别的引用没有行号
+		if (range.getFirstRow() < 0 || range.getLastRow() < 0 || range.getFirstColumn() < 0) {
+			return false;
+		}
+		firstRow = range.getFirstRow();
+		lastRow = range.getLastRow();
+		firstColumn = range.getFirstColumn();
+		lastColumn = range.getLastColumn();
+		return true;
+	}
+
+	/**
+	 * 扫描整个sheetData得到已用区域，用于没有可用dimension的sheet
+	 */
+	void scan(InputStream sheetXml) throws IOException {
+		firstRow = -1;
+		lastRow = -1;
+		firstColumn = -1;
+		lastColumn = -1;
+		XmlTagStream tags = new XmlTagStream(sheetXml);
+		int row = -1;
+		int column = -1;
+		while (tags.next(null)) {
+			if (tags.isEndTag()) {
+				continue;
+			}
+			if (tags.isElement("row")) {
+				int r = tags.intAttribute("r");
+				row = r > 0 ? r - 1 : row + 1;
+				column = -1;
+				if (firstRow < 0) {
+					firstRow = row;
+				}
+				lastRow = Math.max(lastRow, row);
+			} else if (tags.isElement("c")) {
+				int c = tags.columnOfReference("r");
+				column = c >= 0 ? c : column + 1;
+				if (firstColumn < 0 || column < firstColumn) {
+					firstColumn = column;
+				}
+				lastColumn = Math.max(lastColumn, column);
+			}
+		}
+	}
+
+	/**
+	 * 检查追加后的行列数是否超出.xlsx的上限，须在写出任何内容之前调用
+	 *
+	 * @throws IllegalArgumentException 超出1048576行或16384列
+	 */
+	void checkLimits(List<? extends List<?>> rows) {
+		SpreadsheetVersion version = SpreadsheetVersion.EXCEL2007;
+		int startRow = lastRow + 1;
+		if ((long) startRow + rows.size() > version.getMaxRows()) {
+			throw new IllegalArgumentException("Cannot append " + rows.size() + " rows after row " + startRow
+					+ ", the sheet is limited to " + version.getMaxRows() + " rows");
+		}
+		for (List<?> values : rows) {
+			if (values.size() > version.getMaxColumns()) {
+				throw new IllegalArgumentException("Row has " + values.size() + " columns, the sheet is limited to "
+						+ version.getMaxColumns() + " columns");
+			}
+		}
+	}
+
+	/**
+	 * 复制旧内容并追加新行
+	 *
+	 * @return 追加的行数
+	 * @throws StaleDimensionException dimension没有覆盖全部已有行，需要扫描后重新追加
+	 */
+	int append(InputStream sheetXml, OutputStream out, List<? extends List<?>> rows) throws IOException {
+		int newLastColumn = lastColumn;
+		for (List<?> values : rows) {
+			newLastColumn = Math.max(newLastColumn, values.size() - 1);
+		}
+		int startRow = lastRow + 1;
+		String dimension = dimensionRef(startRow + rows.size() - 1, newLastColumn);
+
+		XmlTagStream tags = new XmlTagStream(sheetXml);
+		List<String> lastRowStyles = new ArrayList<>();
+		boolean inLastRow = false;
+		boolean dimensionWritten = false;
+		boolean appended = false;
+		int row = -1;
+		int column = -1;
+		while (tags.next(out)) {
+			if (!tags.isEndTag() && !appended) {
+				if (tags.isElement("dimension")) {
+					if (dimension != null) {
+						tags.writeTagReplacing(out, "ref", dimension);
+					} else {
+						tags.writeTag(out);
+					}
+					dimensionWritten = true;
+					continue;
+				}
+				if (!dimensionWritten && dimension != null && isAfterDimension(tags)) {
+					// 原来没有dimension时补上，下次追加就不必扫描
+					String prefix = tags.prefix();
+					out.write(("<" + prefix + "dimension ref=\"" + dimension + "\"/>").getBytes(StandardCharsets.UTF_8));
+					dimensionWritten = true;
+				}
+				if (tags.isElement("row")) {
+					int r = tags.intAttribute("r");
+					row = r > 0 ? r - 1 : row + 1;
+					if (row >= startRow) {
+						throw new StaleDimensionException("Row " + (row + 1) + " lies outside the sheet dimension");
+					}
+					inLastRow = row == lastRow;
+					column = -1;
+				} else if (inLastRow && tags.isElement("c")) {
+					int c = tags.columnOfReference("r");
+					column = c >= 0 ? c : column + 1;
+					String style = tags.attribute("s");
+					if (style != null) {
+						while (lastRowStyles.size() <= column) {
+							lastRowStyles.add(null);
+						}
+						lastRowStyles.set(column, style);
+					}
+				}
+			}
+			if (tags.isElement("sheetData") && !appended && tags.isSelfClosing()) {
+				String name = tags.qualifiedName();
+				out.write(("<" + name + ">").getBytes(StandardCharsets.UTF_8));
+				writeRows(out, tags.prefix(), startRow, rows, lastRowStyles);
+				out.write(("</" + name + ">").getBytes(StandardCharsets.UTF_8));
+				appended = true;
+			} else if (tags.isElement("sheetData") && !appended && tags.isEndTag()) {
+				writeRows(out, tags.prefix(), startRow, rows, lastRowStyles);
+				tags.writeTag(out);
+				appended = true;
+			} else {
+				tags.writeTag(out);
+			}
+		}
+		if (!appended) {
+			throw new IOException("sheetData element not found in sheet XML");
+		}
+		return rows.size();
+	}
+
+	/**
+	 * 按CT_Worksheet的元素顺序，dimension应位于这些元素之前
+	 */
+	private static boolean isAfterDimension(XmlTagStream tags) {
+		return tags.isElement("sheetViews") || tags.isElement("sheetFormatPr")
+				|| tags.isElement("cols") || tags.isElement("sheetData");
+	}
+
+	private String dimensionRef(int newLastRow, int newLastColumn) {
+		if (newLastRow < 0) {
+			return null;
+		}
+		int top = firstRow >= 0 ? firstRow : lastRow + 1;
+		int left = firstColumn >= 0 ? firstColumn : 0;
+		int right = Math.max(newLastColumn, left);
+		String from = CellReference.convertNumToColString(left) + (top + 1);
+		String to = CellReference.convertNumToColString(right) + (newLastRow + 1);
+		return from.equals(to) ? from : from + ":" + to;
+	}
+
+	private void writeRows(OutputStream out, String prefix, int startRow, List<? extends List<?>> rows,
+						   List<String> lastRowStyles) throws IOException {
+		StringBuilder xml = new StringBuilder(256);
+		int rowIndex = startRow;
+		for (List<?> values : rows) {
+			xml.setLength(0);
+			String rowNumber = Integer.toString(rowIndex + 1);
+			xml.append('<').append(prefix).append("row r=\"").append(rowNumber).append("\">");
+			for (int column = 0; column < values.size(); column++) {
+				Object value = values.get(column);
+				if (value != null) {
+					writeCell(xml, prefix, CellReference.convertNumToColString(column) + rowNumber,
+							column < lastRowStyles.size() ? lastRowStyles.get(column) : null, value);
+				}
+			}
+			xml.append("</").append(prefix).append("row>");
+			out.write(xml.toString().getBytes(StandardCharsets.UTF_8));
+			rowIndex++;
+		}
+	}
+
+	private void writeCell(StringBuilder xml, String prefix, String ref, String style, Object value) {
+		xml.append('<').append(prefix).append("c r=\"").append(ref).append('"');
+		if (style != null) {
+			xml.append(" s=\"").append(style).append('"');
+		}
+		if (value instanceof CharSequence) {
+			String text = value.toString();
+			xml.append(" t=\"inlineStr\"><").append(prefix).append("is><").append(prefix).append('t');
+			if (!text.isEmpty() && (Character.isWhitespace(text.charAt(0))
+					|| Character.isWhitespace(text.charAt(text.length() - 1)))) {
+				xml.append(" xml:space=\"preserve\"");
+			}
+			xml.append('>');
+			escape(xml, text);
+			xml.append("</").append(prefix).append("t></").append(prefix).append("is>");
+		} else if (value instanceof Boolean) {
+			xml.append(" t=\"b\"><").append(prefix).append("v>").append((Boolean) value ? '1' : '0')
+					.append("</").append(prefix).append("v>");
+		} else {
+			xml.append("><").append(prefix).append("v>");
+			appendNumber(xml, toNumber(value));
+			xml.append("</").append(prefix).append("v>");
+		}
+		xml.append("</").append(prefix).append("c>");
+	}
+
+	private double toNumber(Object value) {
+		if (value instanceof Number) {
+			return ((Number) value).doubleValue();
+		}
+		if (value instanceof Date) {
+			return DateUtil.getExcelDate((Date) value, date1904);
+		}
+		if (value instanceof Calendar) {
+			return DateUtil.getExcelDate((Calendar) value, date1904);
+		}
+		if (value instanceof LocalDateTime) {
+			return ExcelDates.toSerial((LocalDateTime) value, date1904);
+		}
+		if (value instanceof LocalDate) {
+			return ExcelDates.toSerial((LocalDate) value, date1904);
+		}
+		throw new IllegalArgumentException("Unsupported cell value type: " + value.getClass().getName());
+	}
+
+	private static void appendNumber(StringBuilder xml, double number) {
+		if (Double.isNaN(number) || Double.isInfinite(number)) {
+			throw new IllegalArgumentException("Cannot write non-finite number: " + number);
+		}
+		if (number == Math.rint(number) && Math.abs(number) < 1.0E15) {
+			xml.append((long) number);
+		} else {
+			xml.append(number);
+		}
+	}
+
+	private static void escape(StringBuilder xml, String text) {
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			switch (c) {
+				case '&':
+					xml.append("&amp;");
+					break;
+				case '<':
+					xml.append("&lt;");
+					break;
+				case '>':
+					xml.append("&gt;");
+					break;
+				case '"':
+					xml.append("&quot;");
+					break;
+				default:
+					// XML 1.0不允许的控制字符直接丢弃
+					if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r') {
+						xml.append(c);
+					}
+			}
+		}
+	}
+
+	/**
+	 * dimension的ref没有覆盖sheetData中的全部行，按它追加会写出重复的行号
+	 */
+	static final class StaleDimensionException extends IOException {
+
+		StaleDimensionException(String message) {
+			super(message);
+		}
+	}
+}
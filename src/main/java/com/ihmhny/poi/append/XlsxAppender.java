@@ -0,0 +1,272 @@
+package com.ihmhny.poi.append;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * 向已有的.xlsx文件追加行，不经过WorkbookFactory加载整个工作簿。
+ * <p>
+ * 除目标sheet外的所有zip条目按原始压缩数据直接复制，不解压也不重新压缩；
+ * 目标sheet以流的方式复制旧内容并在末尾加入新行，同时更新dimension。
+ * 新行的单元格沿用原最后一行同列的样式，字符串以inlineStr写入。
+ * <p>
+ * 剩余的开销是目标sheet的一次解压和一次压缩，与sheet的大小成正比：zip条目只能整体压缩，
+ * 不能在压缩数据末尾续写。已用区域取自dimension，不需要额外扫描；只有dimension缺失、
+ * 为"A1"（如SXSSF写出的文件）或与实际数据不符时，才多解压一遍扫描已有的行，
+ * 追加后写出的dimension是准确的，之后的追加不再扫描。
+ * <p>
+ * 注意：表格（tableParts）、自动筛选等引用的区域不会随之扩展。
+ */
+public final class XlsxAppender {
+
+	private static final String OFFICE_DOCUMENT_REL = "/officeDocument";
+
+	private static final int ENTRY_BUFFER_SIZE = 64 * 1024;
+
+	private XlsxAppender() {
+	}
+
+	/**
+	 * 在原文件上追加，先写入同目录下的临时文件，成功后替换原文件
+	 *
+	 * @param file      .xlsx文件
+	 * @param sheetName sheet名称，为null时取第一个sheet
+	 * @param rows      追加的行，每行按列顺序给出值，null表示空单元格
+	 * @return 追加的行数
+	 * @throws IllegalArgumentException sheet不存在，或追加后超出1048576行、16384列，此时原文件不变
+	 */
+	public static int append(File file, String sheetName, Iterable<? extends List<?>> rows) throws IOException {
+		File temp = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+		try {
+			int appended = append(file, temp, sheetName, rows);
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			return appended;
+		} finally {
+			Files.deleteIfExists(temp.toPath());
+		}
+	}
+
+	/**
+	 * 读取source，将追加后的结果写入target，target不能与source相同
+	 *
+	 * @return 追加的行数
+	 * @throws IllegalArgumentException sheet不存在，或追加后超出1048576行、16384列，此时不写出target
+	 */
+	public static int append(File source, File target, String sheetName,
+							 Iterable<? extends List<?>> rows) throws IOException {
+		List<List<?>> pending = new ArrayList<>();
+		for (List<?> values : rows) {
+			pending.add(values);
+		}
+		try (ZipFile zip = new ZipFile(source)) {
+			String workbookPart = findWorkbookPart(zip);
+			WorkbookInfo workbook = readWorkbook(zip, workbookPart, sheetName);
+			String sheetPart = findSheetPart(zip, workbookPart, workbook.relationId);
+			ZipArchiveEntry sheetEntry = getEntry(zip, sheetPart);
+
+			SheetDataAppender appender = new SheetDataAppender(workbook.date1904);
+			boolean dimensionKnown;
+			try (InputStream in = zip.getInputStream(sheetEntry)) {
+				dimensionKnown = appender.readDimension(in);
+			}
+			if (!dimensionKnown) {
+				scan(zip, sheetEntry, appender);
+			}
+			appender.checkLimits(pending);
+			try {
+				return write(zip, target, sheetPart, appender, pending);
+			} catch (SheetDataAppender.StaleDimensionException e) {
+				if (!dimensionKnown) {
+					throw e;
+				}
+				// dimension没有覆盖全部已有行，扫描后重写
+				scan(zip, sheetEntry, appender);
+				appender.checkLimits(pending);
+				return write(zip, target, sheetPart, appender, pending);
+			}
+		}
+	}
+
+	private static void scan(ZipFile zip, ZipArchiveEntry sheetEntry, SheetDataAppender appender) throws IOException {
+		try (InputStream in = zip.getInputStream(sheetEntry)) {
+			appender.scan(in);
+		}
+	}
+
+	/**
+	 * 目标sheet以外的条目按原始压缩数据复制，目标sheet解压一次、追加后压缩一次
+	 */
+	private static int write(ZipFile zip, File target, String sheetPart, SheetDataAppender appender,
+							 List<List<?>> rows) throws IOException {
+		int appended = 0;
+		try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(target)) {
+			Enumeration<ZipArchiveEntry> entries = zip.getEntriesInPhysicalOrder();
+			while (entries.hasMoreElements()) {
+				ZipArchiveEntry entry = entries.nextElement();
+				if (!entry.getName().equals(sheetPart)) {
+					try (InputStream raw = zip.getRawInputStream(entry)) {
+						out.addRawArchiveEntry(entry, raw);
+					}
+					continue;
+				}
+				ZipArchiveEntry rewritten = new ZipArchiveEntry(entry.getName());
+				rewritten.setMethod(ZipArchiveEntry.DEFLATED);
+				rewritten.setTime(System.currentTimeMillis());
+				out.putArchiveEntry(rewritten);
+				// 每次write都会触发一次Deflater调用和CRC计算，逐个标签写入时先攒成大块
+				BufferedOutputStream buffered = new BufferedOutputStream(out, ENTRY_BUFFER_SIZE);
+				try (InputStream in = zip.getInputStream(entry)) {
+					appended = appender.append(in, buffered, rows);
+				}
+				buffered.flush();
+				out.closeArchiveEntry();
+			}
+		}
+		return appended;
+	}
+
+	private static ZipArchiveEntry getEntry(ZipFile zip, String name) throws IOException {
+		ZipArchiveEntry entry = zip.getEntry(name);
+		if (entry == null) {
+			throw new IOException("Part not found in package: " + name);
+		}
+		return entry;
+	}
+
+	/**
+	 * 从/_rels/.rels中找到workbook部件的路径
+	 */
+	private static String findWorkbookPart(ZipFile zip) throws IOException {
+		String target = findRelationshipTarget(zip, "_rels/.rels", null);
+		if (target == null) {
+			throw new IOException("officeDocument relationship not found, not an OOXML package");
+		}
+		return resolvePart("", target);
+	}
+
+	private static String findSheetPart(ZipFile zip, String workbookPart, String relationId) throws IOException {
+		int slash = workbookPart.lastIndexOf('/');
+		String directory = workbookPart.substring(0, slash + 1);
+		String relsPart = directory + "_rels/" + workbookPart.substring(slash + 1) + ".rels";
+		String target = findRelationshipTarget(zip, relsPart, relationId);
+		if (target == null) {
+			throw new IOException("Relationship " + relationId + " not found in " + relsPart);
+		}
+		return resolvePart(directory, target);
+	}
+
+	/**
+	 * 按Id查找关系的Target；id为null时查找officeDocument类型的关系
+	 */
+	private static String findRelationshipTarget(ZipFile zip, String relsPart, String id) throws IOException {
+		try (InputStream in = zip.getInputStream(getEntry(zip, relsPart))) {
+			XMLStreamReader reader = createReader(in);
+			try {
+				while (reader.hasNext()) {
+					if (reader.next() != XMLStreamConstants.START_ELEMENT
+							|| !"Relationship".equals(reader.getLocalName())) {
+						continue;
+					}
+					boolean matched = id != null
+							? id.equals(reader.getAttributeValue(null, "Id"))
+							: String.valueOf(reader.getAttributeValue(null, "Type")).endsWith(OFFICE_DOCUMENT_REL);
+					if (matched) {
+						return reader.getAttributeValue(null, "Target");
+					}
+				}
+				return null;
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException e) {
+			throw new IOException("Failed to parse " + relsPart, e);
+		}
+	}
+
+	private static WorkbookInfo readWorkbook(ZipFile zip, String workbookPart, String sheetName) throws IOException {
+		WorkbookInfo info = new WorkbookInfo();
+		try (InputStream in = zip.getInputStream(getEntry(zip, workbookPart))) {
+			XMLStreamReader reader = createReader(in);
+			try {
+				while (reader.hasNext()) {
+					if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+						continue;
+					}
+					String element = reader.getLocalName();
+					if ("workbookPr".equals(element)) {
+						String date1904 = reader.getAttributeValue(null, "date1904");
+						info.date1904 = "1".equals(date1904) || "true".equals(date1904);
+					} else if ("sheet".equals(element) && info.relationId == null
+							&& (sheetName == null || sheetName.equals(reader.getAttributeValue(null, "name")))) {
+						for (int i = 0; i < reader.getAttributeCount(); i++) {
+							if ("id".equals(reader.getAttributeLocalName(i))
+									&& reader.getAttributeNamespace(i) != null) {
+								info.relationId = reader.getAttributeValue(i);
+							}
+						}
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException e) {
+			throw new IOException("Failed to parse " + workbookPart, e);
+		}
+		if (info.relationId == null) {
+			throw new IllegalArgumentException("Sheet not found: " + sheetName);
+		}
+		return info;
+	}
+
+	private static XMLStreamReader createReader(InputStream in) throws XMLStreamException {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		return factory.createXMLStreamReader(in);
+	}
+
+	/**
+	 * 将关系中的Target解析为zip条目名，支持绝对路径和"../"
+	 */
+	private static String resolvePart(String directory, String target) {
+		String path = target.startsWith("/") ? target.substring(1) : directory + target;
+		StringBuilder resolved = new StringBuilder();
+		for (String segment : path.split("/")) {
+			if (segment.isEmpty() || ".".equals(segment)) {
+				continue;
+			}
+			if ("..".equals(segment)) {
+				int slash = resolved.lastIndexOf("/");
+				resolved.setLength(Math.max(slash, 0));
+				continue;
+			}
+			if (resolved.length() > 0) {
+				resolved.append('/');
+			}
+			resolved.append(segment);
+		}
+		return resolved.toString();
+	}
+
+	private static final class WorkbookInfo {
+
+		private boolean date1904;
+
+		private String relationId;
+	}
+}
@@ -0,0 +1,248 @@
+package com.ihmhny.poi.append;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 按字节扫描UTF-8编码的sheet XML，只切分出标签，标签之间的内容原样复制。
+ * <p>
+ * 不建立DOM也不解码字符，追加时只需要识别row、c、dimension、sheetData几个标签，
+ * 其余字节直接透传，开销接近一次内存拷贝。
+ */
+final class XmlTagStream {
+
+	private final InputStream in;
+
+	private final byte[] buffer = new byte[64 * 1024];
+
+	private int position;
+
+	private int limit;
+
+	private byte[] tag = new byte[256];
+
+	private int tagLength;
+
+	private int nameStart;
+
+	private int nameEnd;
+
+	XmlTagStream(InputStream in) {
+		this.in = in;
+	}
+
+	/**
+	 * 将下一个标签之前的内容复制到out（out为null时丢弃），并读入下一个标签
+	 *
+	 * @return 读到标签返回true，到达流末尾返回false
+	 */
+	boolean next(OutputStream out) throws IOException {
+		while (true) {
+			if (position == limit && !fill()) {
+				return false;
+			}
+			int start = position;
+			while (position < limit && buffer[position] != '<') {
+				position++;
+			}
+			if (out != null && position > start) {
+				out.write(buffer, start, position - start);
+			}
+			if (position < limit) {
+				readTag();
+				return true;
+			}
+		}
+	}
+
+	private void readTag() throws IOException {
+		tagLength = 0;
+		while (true) {
+			if (position == limit && !fill()) {
+				throw new IOException("Unexpected end of sheet XML inside a tag");
+			}
+			byte b = buffer[position++];
+			if (tagLength == tag.length) {
+				tag = Arrays.copyOf(tag, tag.length * 2);
+			}
+			tag[tagLength++] = b;
+			if (b == '>') {
+				break;
+			}
+		}
+		nameStart = isEndTag() ? 2 : 1;
+		nameEnd = nameStart;
+		while (nameEnd < tagLength && !isNameTerminator(tag[nameEnd])) {
+			nameEnd++;
+		}
+	}
+
+	private boolean fill() throws IOException {
+		int read = in.read(buffer);
+		while (read == 0) {
+			read = in.read(buffer);
+		}
+		position = 0;
+		limit = Math.max(read, 0);
+		return read > 0;
+	}
+
+	private static boolean isNameTerminator(byte b) {
+		return b == ' ' || b == '\t' || b == '\r' || b == '\n' || b == '/' || b == '>';
+	}
+
+	private static boolean isWhitespace(byte b) {
+		return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+	}
+
+	boolean isEndTag() {
+		return tagLength > 1 && tag[1] == '/';
+	}
+
+	boolean isSelfClosing() {
+		return tagLength > 2 && tag[tagLength - 2] == '/';
+	}
+
+	/**
+	 * 不带命名空间前缀的标签名是否为localName
+	 */
+	boolean isElement(String localName) {
+		int localStart = nameStart;
+		for (int i = nameStart; i < nameEnd; i++) {
+			if (tag[i] == ':') {
+				localStart = i + 1;
+			}
+		}
+		if (nameEnd - localStart != localName.length()) {
+			return false;
+		}
+		for (int i = 0; i < localName.length(); i++) {
+			if (tag[localStart + i] != localName.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 带前缀的完整标签名，如"sheetData"或"x:sheetData"
+	 */
+	String qualifiedName() {
+		return new String(tag, nameStart, nameEnd - nameStart, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * 标签名的命名空间前缀，没有前缀时返回空串
+	 */
+	String prefix() {
+		for (int i = nameEnd - 1; i >= nameStart; i--) {
+			if (tag[i] == ':') {
+				return new String(tag, nameStart, i + 1 - nameStart, StandardCharsets.UTF_8);
+			}
+		}
+		return "";
+	}
+
+	/**
+	 * 属性值在标签中的起始下标，属性不存在时返回-1
+	 */
+	private int attributeStart(String name) {
+		int last = tagLength - name.length() - 2;
+		for (int i = nameEnd; i < last; i++) {
+			if (!isWhitespace(tag[i])) {
+				continue;
+			}
+			int j = 0;
+			while (j < name.length() && tag[i + 1 + j] == name.charAt(j)) {
+				j++;
+			}
+			int eq = i + 1 + j;
+			if (j == name.length() && tag[eq] == '=' && (tag[eq + 1] == '"' || tag[eq + 1] == '\'')) {
+				return eq + 2;
+			}
+		}
+		return -1;
+	}
+
+	private int attributeEnd(int start) {
+		byte quote = tag[start - 1];
+		int end = start;
+		while (end < tagLength && tag[end] != quote) {
+			end++;
+		}
+		return end;
+	}
+
+	/**
+	 * 属性值（不做实体解码），属性不存在时返回null
+	 */
+	String attribute(String name) {
+		int start = attributeStart(name);
+		if (start < 0) {
+			return null;
+		}
+		return new String(tag, start, attributeEnd(start) - start, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * 解析单元格引用（如"AB12"）中的列号，从0开始；属性不存在时返回-1
+	 */
+	int columnOfReference(String name) {
+		int start = attributeStart(name);
+		if (start < 0) {
+			return -1;
+		}
+		int column = 0;
+		for (int i = start; i < tagLength; i++) {
+			byte b = tag[i];
+			if (b >= 'A' && b <= 'Z') {
+				column = column * 26 + (b - 'A' + 1);
+			} else if (b == '$') {
+				continue;
+			} else {
+				break;
+			}
+		}
+		return column - 1;
+	}
+
+	/**
+	 * 解析整数属性（如row的r），属性不存在时返回-1
+	 */
+	int intAttribute(String name) {
+		int start = attributeStart(name);
+		if (start < 0) {
+			return -1;
+		}
+		int value = 0;
+		for (int i = start; i < tagLength && tag[i] >= '0' && tag[i] <= '9'; i++) {
+			value = value * 10 + (tag[i] - '0');
+		}
+		return value;
+	}
+
+	/**
+	 * 原样写出当前标签
+	 */
+	void writeTag(OutputStream out) throws IOException {
+		out.write(tag, 0, tagLength);
+	}
+
+	/**
+	 * 写出当前标签，并将指定属性的值替换为value；属性不存在时原样写出
+	 */
+	void writeTagReplacing(OutputStream out, String name, String value) throws IOException {
+		int start = attributeStart(name);
+		if (start < 0) {
+			writeTag(out);
+			return;
+		}
+		int end = attributeEnd(start);
+		out.write(tag, 0, start);
+		out.write(value.getBytes(StandardCharsets.UTF_8));
+		out.write(tag, end, tagLength - end);
+	}
+}
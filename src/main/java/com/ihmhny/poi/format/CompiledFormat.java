@@ -0,0 +1,70 @@
+package com.ihmhny.poi.format;
+
+/**
+ * 预编译后的单元格格式，由{@link DataFormatCompiler}按格式索引和格式字符串缓存。
+ * <p>
+ * 实现类必须是无状态的，格式化时只向调用方传入的{@link StringBuilder}追加内容。
+ */
+public abstract class CompiledFormat {
+
+	private final int index;
+
+	private final String formatString;
+
+	protected CompiledFormat(int index, String formatString) {
+		this.index = index;
+		this.formatString = formatString;
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public String getFormatString() {
+		return formatString;
+	}
+
+	/**
+	 * 将数值按当前格式追加到out中
+	 *
+	 * @param value 单元格中的原始数值
+	 * @param out   输出缓冲区
+	 */
+	public abstract void format(double value, StringBuilder out);
+
+	/**
+	 * 按十进制追加非负整数，digits小于实际位数时以实际位数为准，不足时左侧补0
+	 */
+	static void appendDigits(StringBuilder out, long value, int digits) {
+		// 日期时间字段都小于100，避免逐位做long除法
+		if (value < 100 && digits <= 2) {
+			int small = (int) value;
+			if (small >= 10 || digits == 2) {
+				out.append((char) ('0' + small / 10));
+			}
+			out.append((char) ('0' + small % 10));
+			return;
+		}
+		int length = digitCount(value);
+		for (int i = length; i < digits; i++) {
+			out.append('0');
+		}
+		for (int i = length - 1; i >= 0; i--) {
+			out.append((char) ('0' + (value / POW10[i]) % 10));
+		}
+	}
+
+	static int digitCount(long value) {
+		int length = 1;
+		while (length < POW10.length && value >= POW10[length]) {
+			length++;
+		}
+		return length;
+	}
+
+	static final long[] POW10 = {
+			1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L,
+			10000000000L, 100000000000L, 1000000000000L, 10000000000000L, 100000000000000L,
+			1000000000000000L, 10000000000000000L, 100000000000000000L, 1000000000000000000L
+	};
+}
@@ -0,0 +1,392 @@
+package com.ihmhny.poi.format;
+
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.util.LocaleUtil;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 读取单元格时替代DataFormatter的格式编译器。
+ * <p>
+ * 每个不同的格式索引+格式字符串只解析一次，编译结果按索引缓存；之后格式化数值时
+ * 直接向调用方的StringBuilder追加字符，日期由序列号直接换算，不再创建Date、
+ * SimpleDateFormat、DecimalFormat等对象。
+ * <p>
+ * 支持常见的定点数格式（"0.0"、"#,##0.0000"、"0.00%"）、General以及日期时间格式
+ * （"m/d/yy h:mm"、"yyyy-mm-dd hh:mm:ss"）；多段格式、颜色、分数、科学计数法等
+ * 仍委托给DataFormatter，结果与之保持一致。
+ * <p>
+ * 非线程安全，每个读取线程各自持有一个实例。
+ */
+public class DataFormatCompiler {
+
+	private static final String GENERAL = "General";
+
+	/** 数字格式中可以原样输出的字符 */
+	private static final String NUMBER_LITERALS = " $-+():!^&'~{}<>=";
+
+	private final boolean date1904;
+
+	private final FormatSymbols symbols;
+
+	private final DataFormatter dataFormatter;
+
+	private final StringBuilder buffer = new StringBuilder(32);
+
+	private CompiledFormat[] cache = new CompiledFormat[BuiltinFormats.FIRST_USER_DEFINED_FORMAT_INDEX];
+
+	public DataFormatCompiler() {
+		this(LocaleUtil.getUserLocale(), false);
+	}
+
+	/**
+	 * @param locale   数字分隔符、月份和星期名称使用的Locale
+	 * @param date1904 工作簿是否使用1904日期系统
+	 */
+	public DataFormatCompiler(Locale locale, boolean date1904) {
+		this.date1904 = date1904;
+		this.symbols = new FormatSymbols(locale);
+		this.dataFormatter = new DataFormatter(locale);
+	}
+
+	/**
+	 * 取得格式的编译结果，同一索引下格式字符串不变时直接返回缓存
+	 *
+	 * @param index        格式索引
+	 * @param formatString 格式字符串，为null时按内置格式查找
+	 * @return 编译后的格式
+	 */
+	public CompiledFormat compile(int index, String formatString) {
+		if (formatString == null) {
+			formatString = BuiltinFormats.getBuiltinFormat(index);
+			if (formatString == null) {
+				formatString = GENERAL;
+			}
+		}
+		if (index < 0) {
+			return doCompile(index, formatString);
+		}
+		if (index >= cache.length) {
+			cache = Arrays.copyOf(cache, Math.max(index + 1, cache.length * 2));
+		}
+		CompiledFormat compiled = cache[index];
+		if (compiled == null || !compiled.getFormatString().equals(formatString)) {
+			compiled = doCompile(index, formatString);
+			cache[index] = compiled;
+		}
+		return compiled;
+	}
+
+	/**
+	 * 按格式将数值追加到out中
+	 */
+	public void formatNumber(double value, int index, String formatString, StringBuilder out) {
+		compile(index, formatString).format(value, out);
+	}
+
+	/**
+	 * 将单元格的显示文本追加到out中，公式单元格取缓存的计算结果
+	 */
+	public void formatCellValue(Cell cell, StringBuilder out) {
+		if (cell == null) {
+			return;
+		}
+		CellType cellType = cell.getCellTypeEnum();
+		if (cellType == CellType.FORMULA) {
+			cellType = cell.getCachedFormulaResultTypeEnum();
+		}
+		switch (cellType) {
+			case NUMERIC:
+				CellStyle style = cell.getCellStyle();
+				compile(style.getDataFormat() & 0xFFFF, style.getDataFormatString())
+						.format(cell.getNumericCellValue(), out);
+				break;
+			case STRING:
+				out.append(cell.getStringCellValue());
+				break;
+			case BOOLEAN:
+				out.append(cell.getBooleanCellValue() ? "TRUE" : "FALSE");
+				break;
+			case ERROR:
+				out.append(FormulaError.forInt(cell.getErrorCellValue()).getString());
+				break;
+			default:
+				break;
+		}
+	}
+
+	/**
+	 * 返回单元格的显示文本，内部复用同一个StringBuilder
+	 */
+	public String formatCellValue(Cell cell) {
+		buffer.setLength(0);
+		formatCellValue(cell, buffer);
+		return buffer.toString();
+	}
+
+	/**
+	 * 将数值单元格按日期读取为LocalDateTime
+	 */
+	public LocalDateTime getLocalDateTimeCellValue(Cell cell) {
+		return ExcelDates.toLocalDateTime(cell.getNumericCellValue(), date1904);
+	}
+
+	private CompiledFormat doCompile(int index, String formatString) {
+		CompiledFormat fallback = new FallbackFormat(index, formatString, dataFormatter, date1904);
+		if (GENERAL.equalsIgnoreCase(formatString)) {
+			return new GeneralFormat(index, formatString, fallback);
+		}
+		if (formatString.indexOf(';') >= 0) {
+			return fallback;
+		}
+		CompiledFormat compiled = DateUtil.isADateFormat(index, formatString)
+				? compileDate(index, formatString, fallback)
+				: compileNumber(index, formatString, fallback);
+		return compiled != null ? compiled : fallback;
+	}
+
+	private CompiledFormat compileNumber(int index, String formatString, CompiledFormat fallback) {
+		StringBuilder prefix = new StringBuilder();
+		StringBuilder suffix = new StringBuilder();
+		int minInteger = 0;
+		int minFraction = 0;
+		int maxFraction = 0;
+		int placeholders = 0;
+		boolean grouping = false;
+		boolean percent = false;
+		boolean inFraction = false;
+		boolean digitsEnded = false;
+
+		int length = formatString.length();
+		for (int i = 0; i < length; i++) {
+			char c = formatString.charAt(i);
+			if (c == '0' || c == '#') {
+				if (digitsEnded) {
+					return null;
+				}
+				placeholders++;
+				if (inFraction) {
+					maxFraction++;
+					if (c == '0') {
+						// "0.#0"这类格式交给DataFormatter
+						if (maxFraction != minFraction + 1) {
+							return null;
+						}
+						minFraction++;
+					}
+				} else if (c == '0') {
+					minInteger++;
+				} else if (minInteger > 0) {
+					return null;
+				}
+				continue;
+			}
+			if (c == ',') {
+				// 数字之间的逗号是千分位，末尾的逗号表示按千缩放，不支持
+				boolean betweenDigits = placeholders > 0 && i + 1 < length
+						&& (formatString.charAt(i + 1) == '#' || formatString.charAt(i + 1) == '0');
+				if (!betweenDigits || inFraction || digitsEnded) {
+					return null;
+				}
+				grouping = true;
+				continue;
+			}
+			if (c == '.') {
+				if (inFraction || digitsEnded) {
+					return null;
+				}
+				inFraction = true;
+				continue;
+			}
+
+			StringBuilder literal;
+			if (placeholders > 0 || inFraction) {
+				digitsEnded = true;
+				literal = suffix;
+			} else {
+				literal = prefix;
+			}
+			if (c == '%') {
+				if (percent) {
+					return null;
+				}
+				percent = true;
+				literal.append(c);
+			} else if (c == '"') {
+				int end = formatString.indexOf('"', i + 1);
+				if (end < 0) {
+					return null;
+				}
+				literal.append(formatString, i + 1, end);
+				i = end;
+			} else if (c == '\\') {
+				if (++i >= length) {
+					return null;
+				}
+				literal.append(formatString.charAt(i));
+			} else if (NUMBER_LITERALS.indexOf(c) >= 0 || Character.getType(c) == Character.CURRENCY_SYMBOL) {
+				literal.append(c);
+			} else {
+				return null;
+			}
+		}
+
+		if (placeholders == 0 || (inFraction && maxFraction == 0)
+				|| minInteger > 15 || maxFraction > 15) {
+			return null;
+		}
+		// 与DecimalFormat一致，没有0占位的"#.##"按"0.##"处理，0.5显示为0.5而不是.5
+		if (inFraction && minInteger == 0 && minFraction == 0) {
+			if (placeholders == maxFraction) {
+				return null;
+			}
+			minInteger = 1;
+		}
+		return new NumberPattern(index, formatString, prefix.toString(), suffix.toString(),
+				minInteger, minFraction, maxFraction, grouping, percent,
+				symbols.decimalSeparator, symbols.groupingSeparator, fallback);
+	}
+
+	private CompiledFormat compileDate(int index, String formatString, CompiledFormat fallback) {
+		String format = formatString;
+		// 去掉"[$-409]"这类Locale前缀
+		while (format.startsWith("[$-")) {
+			int end = format.indexOf(']');
+			if (end < 0) {
+				return null;
+			}
+			format = format.substring(end + 1);
+		}
+		if (format.indexOf('[') >= 0) {
+			return null;
+		}
+
+		List<Integer> tokens = new ArrayList<>();
+		List<String> literals = new ArrayList<>();
+		StringBuilder literal = new StringBuilder();
+		boolean twelveHour = false;
+
+		int length = format.length();
+		for (int i = 0; i < length; i++) {
+			char c = format.charAt(i);
+			char lower = Character.toLowerCase(c);
+			if (c == '"') {
+				int end = format.indexOf('"', i + 1);
+				if (end < 0) {
+					return null;
+				}
+				literal.append(format, i + 1, end);
+				i = end;
+			} else if (c == '\\') {
+				if (++i >= length) {
+					return null;
+				}
+				literal.append(format.charAt(i));
+			} else if (format.regionMatches(true, i, "AM/PM", 0, 5)) {
+				flushLiteral(literal, tokens, literals);
+				tokens.add(DatePattern.AM_PM);
+				literals.add(null);
+				twelveHour = true;
+				i += 4;
+			} else if (lower == 'y' || lower == 'm' || lower == 'd' || lower == 'h' || lower == 's') {
+				int run = 1;
+				while (i + run < length && Character.toLowerCase(format.charAt(i + run)) == lower) {
+					run++;
+				}
+				int token = dateToken(lower, run);
+				if (token < 0) {
+					return null;
+				}
+				flushLiteral(literal, tokens, literals);
+				tokens.add(token);
+				literals.add(null);
+				i += run - 1;
+			} else if (Character.isLetterOrDigit(c) || c == '_' || c == '*' || c == '@' || c == '#' || c == '?') {
+				// 小数秒、A/P、纪年等交给DataFormatter
+				return null;
+			} else {
+				literal.append(c);
+			}
+		}
+		flushLiteral(literal, tokens, literals);
+
+		int[] tokenArray = new int[tokens.size()];
+		for (int i = 0; i < tokenArray.length; i++) {
+			tokenArray[i] = tokens.get(i);
+		}
+		resolveMinutes(tokenArray);
+		return new DatePattern(index, formatString, tokenArray, literals.toArray(new String[0]),
+				twelveHour, date1904, symbols, fallback);
+	}
+
+	private static void flushLiteral(StringBuilder literal, List<Integer> tokens, List<String> literals) {
+		if (literal.length() > 0) {
+			tokens.add(DatePattern.LITERAL);
+			literals.add(literal.toString());
+			literal.setLength(0);
+		}
+	}
+
+	private static int dateToken(char lower, int run) {
+		switch (lower) {
+			case 'y':
+				if (run == 1) {
+					return -1;
+				}
+				return run == 2 ? DatePattern.YEAR_2 : DatePattern.YEAR_4;
+			case 'm':
+				if (run > 4) {
+					return -1;
+				}
+				return run == 1 ? DatePattern.MONTH
+						: run == 2 ? DatePattern.MONTH_2
+						: run == 3 ? DatePattern.MONTH_SHORT : DatePattern.MONTH_LONG;
+			case 'd':
+				return run == 1 ? DatePattern.DAY
+						: run == 2 ? DatePattern.DAY_2
+						: run == 3 ? DatePattern.WEEKDAY_SHORT : DatePattern.WEEKDAY_LONG;
+			case 'h':
+				return run == 1 ? DatePattern.HOUR : DatePattern.HOUR_2;
+			case 's':
+				return run == 1 ? DatePattern.SECOND : DatePattern.SECOND_2;
+			default:
+				return -1;
+		}
+	}
+
+	/**
+	 * Excel中m/mm紧跟在小时之后或紧挨在秒之前时表示分钟，其余表示月份
+	 */
+	private static void resolveMinutes(int[] tokens) {
+		for (int i = 0; i < tokens.length; i++) {
+			if (tokens[i] != DatePattern.MONTH && tokens[i] != DatePattern.MONTH_2) {
+				continue;
+			}
+			int previous = neighbourToken(tokens, i, -1);
+			int next = neighbourToken(tokens, i, 1);
+			if (previous == DatePattern.HOUR || previous == DatePattern.HOUR_2
+					|| next == DatePattern.SECOND || next == DatePattern.SECOND_2) {
+				tokens[i] = tokens[i] == DatePattern.MONTH ? DatePattern.MINUTE : DatePattern.MINUTE_2;
+			}
+		}
+	}
+
+	private static int neighbourToken(int[] tokens, int from, int step) {
+		for (int i = from + step; i >= 0 && i < tokens.length; i += step) {
+			if (tokens[i] != DatePattern.LITERAL) {
+				return tokens[i];
+			}
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,155 @@
+package com.ihmhny.poi.format;
+
+/**
+ * 日期时间格式，如"m/d/yy h:mm"、"yyyy-mm-dd hh:mm:ss"。
+ * <p>
+ * 直接由序列号计算年月日时分秒，不创建Date/Calendar，也不经过SimpleDateFormat。
+ */
+final class DatePattern extends CompiledFormat {
+
+	static final int LITERAL = 0;
+	static final int YEAR_2 = 1;
+	static final int YEAR_4 = 2;
+	static final int MONTH = 3;
+	static final int MONTH_2 = 4;
+	static final int MONTH_SHORT = 5;
+	static final int MONTH_LONG = 6;
+	static final int DAY = 7;
+	static final int DAY_2 = 8;
+	static final int WEEKDAY_SHORT = 9;
+	static final int WEEKDAY_LONG = 10;
+	static final int HOUR = 11;
+	static final int HOUR_2 = 12;
+	static final int MINUTE = 13;
+	static final int MINUTE_2 = 14;
+	static final int SECOND = 15;
+	static final int SECOND_2 = 16;
+	static final int AM_PM = 17;
+
+	private final int[] tokens;
+
+	private final String[] literals;
+
+	private final boolean twelveHour;
+
+	private final boolean date1904;
+
+	private final String[] shortMonths;
+
+	private final String[] months;
+
+	private final String[] shortWeekdays;
+
+	private final String[] weekdays;
+
+	private final String[] amPm;
+
+	private final CompiledFormat fallback;
+
+	DatePattern(int index, String formatString, int[] tokens, String[] literals, boolean twelveHour,
+				boolean date1904, FormatSymbols symbols, CompiledFormat fallback) {
+		super(index, formatString);
+		this.tokens = tokens;
+		this.literals = literals;
+		this.twelveHour = twelveHour;
+		this.date1904 = date1904;
+		this.shortMonths = symbols.shortMonths;
+		this.months = symbols.months;
+		this.shortWeekdays = symbols.shortWeekdays;
+		this.weekdays = symbols.weekdays;
+		this.amPm = symbols.amPm;
+		this.fallback = fallback;
+	}
+
+	@Override
+	public void format(double value, StringBuilder out) {
+		if (!ExcelDates.isValidSerial(value)) {
+			fallback.format(value, out);
+			return;
+		}
+		long epochDay = ExcelDates.toEpochDay(value, date1904);
+		int millis = ExcelDates.toMillisOfDay(value);
+
+		// civil-from-days, 参见 http://howardhinnant.github.io/date_algorithms.html
+		long z = epochDay + 719468;
+		long era = Math.floorDiv(z, 146097L);
+		long doe = z - era * 146097;
+		long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+		long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+		long mp = (5 * doy + 2) / 153;
+		int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+		int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+		int year = (int) (yoe + era * 400 + (month <= 2 ? 1 : 0));
+		// 0为星期日，与DateFormatSymbols的下标差1
+		int weekday = (int) Math.floorMod(epochDay + 4, 7L);
+
+		int hour = millis / 3600000;
+		int minute = millis / 60000 % 60;
+		int second = millis / 1000 % 60;
+		int displayHour = hour;
+		if (twelveHour) {
+			displayHour = hour % 12 == 0 ? 12 : hour % 12;
+		}
+
+		for (int i = 0; i < tokens.length; i++) {
+			switch (tokens[i]) {
+				case LITERAL:
+					out.append(literals[i]);
+					break;
+				case YEAR_2:
+					appendDigits(out, year % 100, 2);
+					break;
+				case YEAR_4:
+					appendDigits(out, year, 4);
+					break;
+				case MONTH:
+					appendDigits(out, month, 1);
+					break;
+				case MONTH_2:
+					appendDigits(out, month, 2);
+					break;
+				case MONTH_SHORT:
+					out.append(shortMonths[month - 1]);
+					break;
+				case MONTH_LONG:
+					out.append(months[month - 1]);
+					break;
+				case DAY:
+					appendDigits(out, day, 1);
+					break;
+				case DAY_2:
+					appendDigits(out, day, 2);
+					break;
+				case WEEKDAY_SHORT:
+					out.append(shortWeekdays[weekday + 1]);
+					break;
+				case WEEKDAY_LONG:
+					out.append(weekdays[weekday + 1]);
+					break;
+				case HOUR:
+					appendDigits(out, displayHour, 1);
+					break;
+				case HOUR_2:
+					appendDigits(out, displayHour, 2);
+					break;
+				case MINUTE:
+					appendDigits(out, minute, 1);
+					break;
+				case MINUTE_2:
+					appendDigits(out, minute, 2);
+					break;
+				case SECOND:
+					appendDigits(out, second, 1);
+					break;
+				case SECOND_2:
+					appendDigits(out, second, 2);
+					break;
+				case AM_PM:
+					out.append(amPm[hour < 12 ? 0 : 1]);
+					break;
+				default:
+					throw new IllegalStateException("Unknown date token: " + tokens[i]);
+			}
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package com.ihmhny.poi.format;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Excel日期序列号与java.time之间的直接转换，不经过Calendar/Date。
+ * <p>
+ * 与POI的DateUtil保持一致：1900日期系统中序列号1为1900-01-01，
+ * Excel虚构的1900-02-29（序列号60）映射为1900-03-01；时间部分四舍五入到毫秒。
+ */
+public final class ExcelDates {
+
+	static final int DAY_MILLISECONDS = 24 * 60 * 60 * 1000;
+
+	/** 1900日期系统中1900-01-01对应的epoch day减1 */
+	private static final long EPOCH_1900_BEFORE_LEAP_BUG = LocalDate.of(1900, 1, 1).toEpochDay() - 1;
+
+	/** 1900日期系统中序列号61（1900-03-01）及以后的偏移 */
+	private static final long EPOCH_1900 = EPOCH_1900_BEFORE_LEAP_BUG - 1;
+
+	private static final long EPOCH_1904 = LocalDate.of(1904, 1, 1).toEpochDay();
+
+	private ExcelDates() {
+	}
+
+	/**
+	 * 序列号是否可以作为日期解释，负数、NaN和无穷大都不可以
+	 */
+	public static boolean isValidSerial(double serial) {
+		return serial >= 0 && serial < Integer.MAX_VALUE;
+	}
+
+	/**
+	 * 序列号对应日期的epoch day（1970-01-01为0），已计入四舍五入到次日的毫秒
+	 */
+	static long toEpochDay(double serial, boolean date1904) {
+		int wholeDays = (int) Math.floor(serial);
+		if (millisOfDay(serial, wholeDays) == DAY_MILLISECONDS) {
+			wholeDays++;
+		}
+		if (date1904) {
+			return EPOCH_1904 + wholeDays;
+		}
+		return wholeDays < 61 ? EPOCH_1900_BEFORE_LEAP_BUG + wholeDays : EPOCH_1900 + wholeDays;
+	}
+
+	/**
+	 * 序列号时间部分对应的当天毫秒数，范围[0, 86400000)
+	 */
+	static int toMillisOfDay(double serial) {
+		int millis = millisOfDay(serial, (int) Math.floor(serial));
+		return millis == DAY_MILLISECONDS ? 0 : millis;
+	}
+
+	private static int millisOfDay(double serial, int wholeDays) {
+		return (int) ((serial - wholeDays) * DAY_MILLISECONDS + 0.5);
+	}
+
+	public static LocalDate toLocalDate(double serial, boolean date1904) {
+		checkSerial(serial);
+		return LocalDate.ofEpochDay(toEpochDay(serial, date1904));
+	}
+
+	public static LocalDateTime toLocalDateTime(double serial, boolean date1904) {
+		checkSerial(serial);
+		return LocalDateTime.of(LocalDate.ofEpochDay(toEpochDay(serial, date1904)),
+				LocalTime.ofNanoOfDay(toMillisOfDay(serial) * 1000000L));
+	}
+
+	public static double toSerial(LocalDate date, boolean date1904) {
+		return toSerial(date.atStartOfDay(), date1904);
+	}
+
+	/**
+	 * LocalDateTime转换为Excel日期序列号，与{@link #toLocalDateTime(double, boolean)}互逆
+	 */
+	public static double toSerial(LocalDateTime dateTime, boolean date1904) {
+		long epochDay = dateTime.toLocalDate().toEpochDay();
+		long wholeDays;
+		if (date1904) {
+			wholeDays = epochDay - EPOCH_1904;
+		} else {
+			wholeDays = epochDay - EPOCH_1900;
+			if (wholeDays < 61) {
+				wholeDays = epochDay - EPOCH_1900_BEFORE_LEAP_BUG;
+			}
+		}
+		if (wholeDays < (date1904 ? 0 : 1)) {
+			throw new IllegalArgumentException("Date before Excel epoch: " + dateTime);
+		}
+		return wholeDays + dateTime.toLocalTime().toNanoOfDay() / (DAY_MILLISECONDS * 1000000.0);
+	}
+
+	private static void checkSerial(double serial) {
+		if (!isValidSerial(serial)) {
+			throw new IllegalArgumentException("Invalid Excel date serial: " + serial);
+		}
+	}
+}
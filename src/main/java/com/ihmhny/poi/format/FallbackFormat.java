@@ -0,0 +1,24 @@
+package com.ihmhny.poi.format;
+
+import org.apache.poi.ss.usermodel.DataFormatter;
+
+/**
+ * 编译器不支持的格式（多段格式、颜色、分数、科学计数法等）委托给POI的DataFormatter
+ */
+final class FallbackFormat extends CompiledFormat {
+
+	private final DataFormatter formatter;
+
+	private final boolean date1904;
+
+	FallbackFormat(int index, String formatString, DataFormatter formatter, boolean date1904) {
+		super(index, formatString);
+		this.formatter = formatter;
+		this.date1904 = date1904;
+	}
+
+	@Override
+	public void format(double value, StringBuilder out) {
+		out.append(formatter.formatRawCellContents(value, getIndex(), getFormatString(), date1904));
+	}
+}
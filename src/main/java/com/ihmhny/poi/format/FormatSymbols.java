@@ -0,0 +1,37 @@
+package com.ihmhny.poi.format;
+
+import java.text.DateFormatSymbols;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * 编译时从Locale中取出的符号，所有编译结果共享同一份
+ */
+final class FormatSymbols {
+
+	final char decimalSeparator;
+
+	final char groupingSeparator;
+
+	final String[] shortMonths;
+
+	final String[] months;
+
+	final String[] shortWeekdays;
+
+	final String[] weekdays;
+
+	final String[] amPm;
+
+	FormatSymbols(Locale locale) {
+		DecimalFormatSymbols decimalSymbols = DecimalFormatSymbols.getInstance(locale);
+		DateFormatSymbols dateSymbols = DateFormatSymbols.getInstance(locale);
+		this.decimalSeparator = decimalSymbols.getDecimalSeparator();
+		this.groupingSeparator = decimalSymbols.getGroupingSeparator();
+		this.shortMonths = dateSymbols.getShortMonths();
+		this.months = dateSymbols.getMonths();
+		this.shortWeekdays = dateSymbols.getShortWeekdays();
+		this.weekdays = dateSymbols.getWeekdays();
+		this.amPm = dateSymbols.getAmPmStrings();
+	}
+}
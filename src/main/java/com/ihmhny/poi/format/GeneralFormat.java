@@ -0,0 +1,30 @@
+package com.ihmhny.poi.format;
+
+/**
+ * "General"格式：10位以内的整数直接输出，其余（小数、科学计数法）交给fallback。
+ */
+final class GeneralFormat extends CompiledFormat {
+
+	private static final double MAX_PLAIN_INTEGER = 1.0E10;
+
+	private final CompiledFormat fallback;
+
+	GeneralFormat(int index, String formatString, CompiledFormat fallback) {
+		super(index, formatString);
+		this.fallback = fallback;
+	}
+
+	@Override
+	public void format(double value, StringBuilder out) {
+		double abs = Math.abs(value);
+		if (abs < MAX_PLAIN_INTEGER && abs == Math.rint(abs)) {
+			long integer = (long) abs;
+			if (value < 0) {
+				out.append('-');
+			}
+			appendDigits(out, integer, 1);
+			return;
+		}
+		fallback.format(value, out);
+	}
+}
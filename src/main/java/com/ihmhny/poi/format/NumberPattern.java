@@ -0,0 +1,175 @@
+package com.ihmhny.poi.format;
+
+/**
+ * 形如"0.0"、"#,##0.0000"、"0.00%"、"$#,##0.00"的定点数格式。
+ * <p>
+ * 与DataFormatter（NumberToTextConverter）和Excel一致，先将double按15位有效数字取整，
+ * 再对这个十进制值做HALF_UP舍入，因此1064.485按"0.00"显示为1064.49，而不是按二进制值得到的1064.48。
+ * 超出long精度或极小的数值交给fallback处理；舍入后为0的负数按Excel的显示不带负号。
+ */
+final class NumberPattern extends CompiledFormat {
+
+	/** 乘以10^maxFraction后仍能精确落在long范围内的上限 */
+	private static final double MAX_SCALED = 9.0E15;
+
+	/** Excel显示数值时保留的有效数字位数 */
+	private static final int SIGNIFICANT_DIGITS = 15;
+
+	/** double能精确表示的最大10的幂 */
+	private static final int MAX_EXACT_POW10 = 22;
+
+	private static final double[] DOUBLE_POW10 = new double[MAX_EXACT_POW10 + 1];
+
+	static {
+		DOUBLE_POW10[0] = 1;
+		for (int i = 1; i < DOUBLE_POW10.length; i++) {
+			DOUBLE_POW10[i] = DOUBLE_POW10[i - 1] * 10;
+		}
+	}
+
+	private final String prefix;
+
+	private final String suffix;
+
+	private final int minInteger;
+
+	private final int minFraction;
+
+	private final int maxFraction;
+
+	private final boolean grouping;
+
+	private final boolean percent;
+
+	private final char decimalSeparator;
+
+	private final char groupingSeparator;
+
+	private final CompiledFormat fallback;
+
+	NumberPattern(int index, String formatString, String prefix, String suffix,
+				  int minInteger, int minFraction, int maxFraction, boolean grouping, boolean percent,
+				  char decimalSeparator, char groupingSeparator, CompiledFormat fallback) {
+		super(index, formatString);
+		this.prefix = prefix;
+		this.suffix = suffix;
+		this.minInteger = minInteger;
+		this.minFraction = minFraction;
+		this.maxFraction = maxFraction;
+		this.grouping = grouping;
+		this.percent = percent;
+		this.decimalSeparator = decimalSeparator;
+		this.groupingSeparator = groupingSeparator;
+		this.fallback = fallback;
+	}
+
+	@Override
+	public void format(double value, StringBuilder out) {
+		double abs = Math.abs(percent ? value * 100 : value);
+		if (!(abs * POW10[maxFraction] < MAX_SCALED)) {
+			fallback.format(value, out);
+			return;
+		}
+		long rounded = roundHalfUp(abs);
+		if (rounded < 0) {
+			fallback.format(value, out);
+			return;
+		}
+		if (value < 0 && rounded != 0) {
+			out.append('-');
+		}
+		out.append(prefix);
+
+		long unit = POW10[maxFraction];
+		long integer = rounded / unit;
+		long fraction = rounded % unit;
+		int fractionDigits = maxFraction;
+		while (fractionDigits > minFraction && fraction % 10 == 0) {
+			fraction /= 10;
+			fractionDigits--;
+		}
+
+		// 与DecimalFormat一致，"#"格式化0时至少输出一个0
+		if (integer != 0 || minInteger > 0 || fractionDigits == 0) {
+			appendInteger(out, integer);
+		}
+		if (fractionDigits > 0) {
+			out.append(decimalSeparator);
+			appendDigits(out, fraction, fractionDigits);
+		}
+		out.append(suffix);
+	}
+
+	/**
+	 * 将abs按15位有效数字取整后，再HALF_UP舍入到maxFraction位小数，返回乘以10^maxFraction的整数；
+	 * 需要超出double精确范围的10的幂时返回-1
+	 */
+	private long roundHalfUp(double abs) {
+		// 小于10^-(maxFraction+1)的值一定舍入为0
+		if (abs < 0.1 / POW10[maxFraction]) {
+			return 0;
+		}
+		int exponent = (int) Math.floor(Math.log10(abs));
+		long mantissa = 0;
+		int shift = 0;
+		// log10在10的幂附近可能差1，最多修正两次
+		for (int attempt = 0; attempt < 3; attempt++) {
+			shift = SIGNIFICANT_DIGITS - 1 - exponent;
+			if (shift > MAX_EXACT_POW10 || shift < -MAX_EXACT_POW10) {
+				return -1;
+			}
+			double scaled = shift >= 0 ? abs * DOUBLE_POW10[shift] : abs / DOUBLE_POW10[-shift];
+			mantissa = (long) Math.floor(scaled);
+			// 乘积的舍入误差决定了接近.5时的进位方向，除法只出现在不小于10^15的值上，误差可以忽略
+			double error = shift >= 0 ? productError(abs, DOUBLE_POW10[shift], scaled) : 0;
+			if ((scaled - mantissa) + error >= 0.5) {
+				mantissa++;
+			}
+			if (scaled >= POW10[SIGNIFICANT_DIGITS]) {
+				exponent++;
+			} else if (mantissa < POW10[SIGNIFICANT_DIGITS - 1]) {
+				exponent--;
+			} else {
+				break;
+			}
+		}
+
+		// mantissa * 10^-shift 即15位有效数字的十进制值，再去掉多余的小数位
+		int drop = shift - maxFraction;
+		if (drop <= 0) {
+			return mantissa * POW10[-drop];
+		}
+		if (drop >= POW10.length) {
+			return 0;
+		}
+		long unit = POW10[drop];
+		long rounded = mantissa / unit;
+		return mantissa % unit * 2 >= unit ? rounded + 1 : rounded;
+	}
+
+	/**
+	 * Dekker算法求a*b的精确值与其double结果product之差，不依赖Math.fma（Java 9+）
+	 */
+	private static double productError(double a, double b, double product) {
+		double aHigh = split(a);
+		double aLow = a - aHigh;
+		double bHigh = split(b);
+		double bLow = b - bHigh;
+		return ((aHigh * bHigh - product) + aHigh * bLow + aLow * bHigh) + aLow * bLow;
+	}
+
+	private static double split(double value) {
+		double c = 134217729.0 * value;
+		return c - (c - value);
+	}
+
+	private void appendInteger(StringBuilder out, long integer) {
+		int length = Math.max(digitCount(integer), minInteger);
+		for (int i = length - 1; i >= 0; i--) {
+			out.append((char) ('0' + (integer / POW10[i]) % 10));
+			if (grouping && i > 0 && i % 3 == 0) {
+				out.append(groupingSeparator);
+			}
+		}
+	}
+}
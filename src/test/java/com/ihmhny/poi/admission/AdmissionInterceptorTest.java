@@ -0,0 +1,188 @@
+package com.ihmhny.poi.admission;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class AdmissionInterceptorTest {
+
+	private static final int BUDGET_KILOBYTES = 100 * 1024;
+
+	private static final String TENANT_HEADER = "X-Tenant-Id";
+
+	private static final String TENANT = "a";
+
+	private final AdmissionProperties properties = new AdmissionProperties();
+
+	private AdmissionManager manager;
+
+	private MockMvc mockMvc;
+
+	@Before
+	public void setUp() {
+		properties.setMemoryBudget(BUDGET_KILOBYTES * 1024L);
+		properties.setMaxQueueMillis(10);
+		properties.setTenantPermitsPerSecond(1);
+		properties.setTenantBurst(2);
+		properties.getTenants().addAll(Arrays.asList(TENANT, "other"));
+		// 冻结时钟，令牌不会在测试过程中补充
+		manager = new AdmissionManager(properties, () -> 0L);
+		mockMvc = MockMvcBuilders.standaloneSetup(new ExcelController())
+				.addMappedInterceptors(new String[]{"/import/**", "/export/**"},
+						new AdmissionInterceptor(manager, properties))
+				.build();
+	}
+
+	@Test
+	public void testPermitReleasedOnCompletion() throws Exception {
+		int expected = AdmissionManager.toKilobytes(ExcelMode.HSSF.estimateBytes(1000, 5));
+		mockMvc.perform(export("/export/sync").param("rows", "1000").param("columns", "5").param("mode", "hssf"))
+				.andExpect(status().isOk())
+				.andExpect(content().string(String.valueOf(expected)));
+		assertEquals(BUDGET_KILOBYTES, manager.getAvailableKilobytes());
+	}
+
+	@Test
+	public void testExportWithoutSizeIsBadRequest() throws Exception {
+		mockMvc.perform(export("/export/sync")).andExpect(status().isBadRequest());
+		mockMvc.perform(export("/export/sync").param("rows", "10")).andExpect(status().isBadRequest());
+		assertEquals(BUDGET_KILOBYTES, manager.getAvailableKilobytes());
+	}
+
+	@Test
+	public void testInvalidParametersAreBadRequest() throws Exception {
+		mockMvc.perform(export("/export/sync").param("rows", "10").param("columns", "2").param("mode", "csv"))
+				.andExpect(status().isBadRequest());
+		mockMvc.perform(export("/export/sync").param("rows", "ten").param("columns", "2"))
+				.andExpect(status().isBadRequest());
+		mockMvc.perform(export("/export/sync").param("rows", "-1").param("columns", "2"))
+				.andExpect(status().isBadRequest());
+		mockMvc.perform(get("/export/sync").param("rows", "10").param("columns", "2")
+				.header(TENANT_HEADER, "bad tenant"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void testUploadEstimatedFromContentLength() throws Exception {
+		byte[] body = new byte[100000];
+		int expected = AdmissionManager.toKilobytes(ExcelMode.XSSF.estimateBytes(body.length / 10, 1));
+		mockMvc.perform(post("/import/upload").header(TENANT_HEADER, TENANT).content(body))
+				.andExpect(status().isOk())
+				.andExpect(content().string(String.valueOf(expected)));
+		assertEquals(BUDGET_KILOBYTES, manager.getAvailableKilobytes());
+	}
+
+	@Test
+	public void testRejectionMapsToTooManyRequests() throws Exception {
+		mockMvc.perform(export("/export/sync").param("rows", "1").param("columns", "1")).andExpect(status().isOk());
+		mockMvc.perform(export("/export/sync").param("rows", "1").param("columns", "1")).andExpect(status().isOk());
+		mockMvc.perform(export("/export/sync").param("rows", "1").param("columns", "1"))
+				.andExpect(status().isTooManyRequests());
+		// 超出总预算
+		mockMvc.perform(get("/export/sync").param("rows", "10000000").param("columns", "100")
+				.header(TENANT_HEADER, "other"))
+				.andExpect(status().isTooManyRequests());
+		assertEquals(BUDGET_KILOBYTES, manager.getAvailableKilobytes());
+	}
+
+	@Test
+	public void testAsyncDispatchAdmitsOnce() throws Exception {
+		MvcResult result = mockMvc.perform(export("/export/async").param("rows", "1000").param("columns", "5"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+		assertEquals(BUDGET_KILOBYTES, manager.getAvailableKilobytes());
+
+		// 两次分派只消耗了一个令牌，突发额度还剩一个
+		mockMvc.perform(export("/export/sync").param("rows", "1").param("columns", "1")).andExpect(status().isOk());
+		mockMvc.perform(export("/export/sync").param("rows", "1").param("columns", "1"))
+				.andExpect(status().isTooManyRequests());
+	}
+
+	@Test
+	public void testMissingTenantIsBadRequest() throws Exception {
+		mockMvc.perform(get("/export/sync").param("rows", "1").param("columns", "1"))
+				.andExpect(status().isBadRequest());
+		mockMvc.perform(get("/export/sync").param("rows", "1").param("columns", "1").header(TENANT_HEADER, " "))
+				.andExpect(status().isBadRequest());
+		assertEquals(0, manager.getTrackedTenants());
+	}
+
+	@Test
+	public void testRotatingTenantHeaderGrantsNoBurst() throws Exception {
+		mockMvc.perform(export("/export/sync").param("rows", "1").param("columns", "1")).andExpect(status().isOk());
+		mockMvc.perform(export("/export/sync").param("rows", "1").param("columns", "1")).andExpect(status().isOk());
+		for (int i = 0; i < 10; i++) {
+			mockMvc.perform(get("/export/sync").param("rows", "1").param("columns", "1")
+					.header(TENANT_HEADER, "rotated-" + i))
+					.andExpect(status().isBadRequest());
+		}
+		// 未登记的租户没有创建新的桶，a的突发额度仍然耗尽
+		assertEquals(1, manager.getTrackedTenants());
+		mockMvc.perform(export("/export/sync").param("rows", "1").param("columns", "1"))
+				.andExpect(status().isTooManyRequests());
+	}
+
+	@Test
+	public void testAuthenticatedPrincipalIsTenant() throws Exception {
+		properties.getTenants().clear();
+		// 未配置租户列表时，未认证的请求不被接受
+		mockMvc.perform(export("/export/sync").param("rows", "1").param("columns", "1"))
+				.andExpect(status().isBadRequest());
+		for (int i = 0; i < 2; i++) {
+			// 已认证时忽略请求头，轮换请求头也仍然计在同一个用户上
+			mockMvc.perform(get("/export/sync").param("rows", "1").param("columns", "1")
+					.principal(() -> "alice@example.com").header(TENANT_HEADER, "rotated-" + i))
+					.andExpect(status().isOk());
+		}
+		mockMvc.perform(get("/export/sync").param("rows", "1").param("columns", "1")
+				.principal(() -> "alice@example.com"))
+				.andExpect(status().isTooManyRequests());
+	}
+
+	private static MockHttpServletRequestBuilder export(String path) {
+		return get(path).header(TENANT_HEADER, TENANT);
+	}
+
+	@RestController
+	public static class ExcelController {
+
+		@GetMapping("/export/sync")
+		public String export(HttpServletRequest request) {
+			return String.valueOf(AdmissionInterceptor.getPermit(request).getKilobytes());
+		}
+
+		@GetMapping("/export/async")
+		public Callable<String> exportAsync(HttpServletRequest request) {
+			AdmissionPermit permit = AdmissionInterceptor.getPermit(request);
+			return () -> {
+				assertTrue(permit.getKilobytes() > 0);
+				return "done";
+			};
+		}
+
+		@PostMapping("/import/upload")
+		public String upload(HttpServletRequest request) {
+			return String.valueOf(AdmissionInterceptor.getPermit(request).getKilobytes());
+		}
+	}
+}
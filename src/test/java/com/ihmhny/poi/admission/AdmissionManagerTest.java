@@ -0,0 +1,177 @@
+package com.ihmhny.poi.admission;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AdmissionManagerTest {
+
+	private static final long MEGABYTE = 1024 * 1024;
+
+	private final AtomicLong now = new AtomicLong();
+
+	private final AdmissionProperties properties = new AdmissionProperties();
+
+	private AdmissionManager createManager(long budgetBytes) {
+		properties.setMemoryBudget(budgetBytes);
+		properties.setMaxQueueMillis(10);
+		properties.setTenantPermitsPerSecond(1);
+		properties.setTenantBurst(2);
+		return new AdmissionManager(properties, now::get);
+	}
+
+	@Test
+	public void testEstimateByMode() {
+		assertTrue(ExcelMode.XSSF.estimateBytes(100000, 20) > ExcelMode.HSSF.estimateBytes(100000, 20));
+		// SXSSF只有窗口内的行常驻内存
+		assertEquals(ExcelMode.SXSSF.estimateBytes(100, 20), ExcelMode.SXSSF.estimateBytes(1000000, 20));
+		assertEquals(Long.MAX_VALUE, ExcelMode.XSSF.estimateBytes(Long.MAX_VALUE, 20));
+	}
+
+	@Test
+	public void testBudgetIsReservedAndReleased() {
+		AdmissionManager manager = createManager(10 * MEGABYTE);
+		AdmissionPermit permit = manager.admit("a", 6 * MEGABYTE, ExcelMode.XSSF);
+		assertEquals(4 * 1024, manager.getAvailableKilobytes());
+		assertRejected(manager, "b", 6 * MEGABYTE);
+
+		permit.close();
+		permit.close();
+		assertEquals(10 * 1024, manager.getAvailableKilobytes());
+		manager.admit("b", 6 * MEGABYTE, ExcelMode.XSSF).close();
+	}
+
+	@Test
+	public void testRequestLargerThanBudgetIsRejected() {
+		AdmissionManager manager = createManager(10 * MEGABYTE);
+		assertRejected(manager, "a", 11 * MEGABYTE);
+		assertEquals(10 * 1024, manager.getAvailableKilobytes());
+	}
+
+	@Test
+	public void testTenantRateLimit() {
+		AdmissionManager manager = createManager(10 * MEGABYTE);
+		manager.admit("a", 1024, ExcelMode.XSSF).close();
+		manager.admit("a", 1024, ExcelMode.XSSF).close();
+		assertRejected(manager, "a", 1024);
+		// 其他租户不受影响
+		manager.admit("b", 1024, ExcelMode.XSSF).close();
+
+		now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+		manager.admit("a", 1024, ExcelMode.XSSF).close();
+	}
+
+	@Test
+	public void testBudgetRejectionRefundsToken() {
+		AdmissionManager manager = createManager(10 * MEGABYTE);
+		AdmissionPermit permit = manager.admit("a", 8 * MEGABYTE, ExcelMode.XSSF);
+		for (int i = 0; i < 5; i++) {
+			assertRejected(manager, "b", 8 * MEGABYTE);
+		}
+		permit.close();
+		// b的令牌没有因为预算拒绝而被消耗
+		manager.admit("b", 1024, ExcelMode.XSSF).close();
+		manager.admit("b", 1024, ExcelMode.XSSF).close();
+	}
+
+	@Test
+	public void testQueueIsBounded() {
+		properties.setMaxQueuedRequests(0);
+		AdmissionManager manager = createManager(10 * MEGABYTE);
+		properties.setMaxQueueMillis(2000);
+		AdmissionPermit permit = manager.admit("a", 8 * MEGABYTE, ExcelMode.XSSF);
+		long start = System.nanoTime();
+		assertRejected(manager, "b", 8 * MEGABYTE);
+		// 不排队，立即拒绝
+		assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(properties.getMaxQueueMillis()));
+		permit.close();
+	}
+
+	@Test
+	public void testEnsureCoversGrowsReservation() {
+		AdmissionManager manager = createManager(10 * MEGABYTE);
+		AdmissionPermit permit = manager.admit("a", 0, 0, ExcelMode.XSSF);
+		permit.ensureCovers(1000, 5);
+		assertEquals(AdmissionManager.toKilobytes(ExcelMode.XSSF.estimateBytes(1000, 5)), permit.getKilobytes());
+		try {
+			permit.ensureCovers(1000000, 50);
+			fail("Expected reservation growth to be rejected");
+		} catch (AdmissionRejectedException expected) {
+			// 超出总预算
+		}
+		permit.close();
+		assertEquals(10 * 1024, manager.getAvailableKilobytes());
+	}
+
+	@Test
+	public void testInvalidAndUnknownTenantsAreRejected() {
+		AdmissionManager manager = createManager(10 * MEGABYTE);
+		assertInvalid(manager, "");
+		assertInvalid(manager, "bad tenant");
+		assertInvalid(manager, new String(new char[65]).replace('\0', 'a'));
+
+		properties.setTenants(Collections.singleton("known"));
+		manager.admit("known", 1024, ExcelMode.XSSF).close();
+		assertInvalid(manager, "other");
+	}
+
+	@Test
+	public void testTenantBucketsAreBounded() {
+		properties.setMaxTrackedTenants(2);
+		AdmissionManager manager = createManager(10 * MEGABYTE);
+		manager.admit("a", 1024, ExcelMode.XSSF).close();
+		manager.admit("b", 1024, ExcelMode.XSSF).close();
+		// a、b的桶尚未补满，不能回收
+		assertRejected(manager, "c", 1024);
+
+		now.addAndGet(TimeUnit.SECONDS.toNanos(2));
+		manager.admit("c", 1024, ExcelMode.XSSF).close();
+		assertTrue(manager.getTrackedTenants() <= 2);
+	}
+
+	@Test
+	public void testInvalidPropertiesFailAtStartup() {
+		assertInvalidProperties(p -> p.setTenantBurst(0));
+		assertInvalidProperties(p -> p.setTenantPermitsPerSecond(0));
+		assertInvalidProperties(p -> p.setTenantPermitsPerSecond(Double.NaN));
+		assertInvalidProperties(p -> p.setMaxQueuedRequests(-1));
+		assertInvalidProperties(p -> p.setMaxTrackedTenants(0));
+		assertInvalidProperties(p -> p.setUploadBytesPerCell(0));
+	}
+
+	private static void assertInvalidProperties(Consumer<AdmissionProperties> customizer) {
+		AdmissionProperties properties = new AdmissionProperties();
+		customizer.accept(properties);
+		try {
+			new AdmissionManager(properties);
+			fail("Expected properties to be rejected");
+		} catch (IllegalArgumentException expected) {
+			// 启动时即失败
+		}
+	}
+
+	private static void assertRejected(AdmissionManager manager, String tenant, long bytes) {
+		try {
+			manager.admit(tenant, bytes, ExcelMode.XSSF).close();
+			fail("Expected request to be rejected");
+		} catch (AdmissionRejectedException expected) {
+			// 预期被拒绝
+		}
+	}
+
+	private static void assertInvalid(AdmissionManager manager, String tenant) {
+		try {
+			manager.admit(tenant, 1024, ExcelMode.XSSF).close();
+			fail("Expected tenant to be rejected: " + tenant);
+		} catch (InvalidAdmissionRequestException expected) {
+			// 预期被拒绝
+		}
+	}
+}
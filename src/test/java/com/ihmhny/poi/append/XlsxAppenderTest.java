@@ -0,0 +1,238 @@
+package com.ihmhny.poi.append;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.utils.IOUtils;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class XlsxAppenderTest {
+
+	/** createWorkbook中第一个sheet在包中的部件名 */
+	private static final String REPORT_SHEET_PART = "xl/worksheets/sheet1.xml";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testAppendRowsToExistingSheet() throws Exception {
+		File file = createWorkbook();
+
+		List<List<?>> rows = Arrays.asList(
+				Arrays.asList("c", 3, LocalDate.of(2018, 1, 3)),
+				Arrays.asList(" d & <e> ", 4.5, null));
+		assertEquals(2, XlsxAppender.append(file, "report", rows));
+
+		try (FileInputStream in = new FileInputStream(file); XSSFWorkbook wb = new XSSFWorkbook(in)) {
+			XSSFSheet sheet = wb.getSheet("report");
+			assertEquals(4, sheet.getLastRowNum());
+			// 区域取自原dimension，POI 3.17写出的列范围多一列（A1:D3）
+			assertEquals("A1:D5", sheet.getCTWorksheet().getDimension().getRef());
+
+			Row row = sheet.getRow(3);
+			assertEquals("c", row.getCell(0).getStringCellValue());
+			assertEquals(3, row.getCell(1).getNumericCellValue(), 0);
+			assertEquals(43103, row.getCell(2).getNumericCellValue(), 0);
+			// 沿用最后一行的日期样式
+			assertEquals(sheet.getRow(2).getCell(2).getCellStyle().getIndex(), row.getCell(2).getCellStyle().getIndex());
+
+			row = sheet.getRow(4);
+			assertEquals(" d & <e> ", row.getCell(0).getStringCellValue());
+			assertEquals(4.5, row.getCell(1).getNumericCellValue(), 0);
+			assertEquals(null, row.getCell(2));
+
+			// 其他sheet保持不变
+			assertEquals("untouched", wb.getSheet("other").getRow(0).getCell(0).getStringCellValue());
+		}
+	}
+
+	@Test
+	public void testUntouchedPartsAreCopiedRaw() throws Exception {
+		File file = createWorkbook();
+		Map<String, ZipArchiveEntry> before = new HashMap<>();
+		Map<String, byte[]> rawBefore = new HashMap<>();
+		readEntries(file, before, rawBefore);
+
+		XlsxAppender.append(file, "report", Collections.singletonList(Arrays.asList("z", 9)));
+
+		Map<String, ZipArchiveEntry> after = new HashMap<>();
+		Map<String, byte[]> rawAfter = new HashMap<>();
+		readEntries(file, after, rawAfter);
+
+		assertEquals(before.keySet(), after.keySet());
+		for (String name : before.keySet()) {
+			if (REPORT_SHEET_PART.equals(name)) {
+				assertTrue(after.get(name).getSize() > before.get(name).getSize());
+				continue;
+			}
+			// 未改动的部件按原始压缩数据复制：压缩大小、CRC和压缩后的字节都不变
+			assertEquals(name, before.get(name).getCompressedSize(), after.get(name).getCompressedSize());
+			assertEquals(name, before.get(name).getCrc(), after.get(name).getCrc());
+			assertArrayEquals(name, rawBefore.get(name), rawAfter.get(name));
+		}
+	}
+
+	private static void readEntries(File file, Map<String, ZipArchiveEntry> entries, Map<String, byte[]> raw)
+			throws Exception {
+		try (ZipFile zip = new ZipFile(file)) {
+			Enumeration<ZipArchiveEntry> enumeration = zip.getEntries();
+			while (enumeration.hasMoreElements()) {
+				ZipArchiveEntry entry = enumeration.nextElement();
+				entries.put(entry.getName(), entry);
+				try (InputStream in = zip.getRawInputStream(entry)) {
+					raw.put(entry.getName(), IOUtils.toByteArray(in));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testAppendToEmptySheet() throws Exception {
+		File file = createWorkbook();
+		List<List<?>> rows = Collections.singletonList(Arrays.asList(true, "x"));
+		XlsxAppender.append(file, "empty", rows);
+
+		try (FileInputStream in = new FileInputStream(file); XSSFWorkbook wb = new XSSFWorkbook(in)) {
+			XSSFSheet sheet = wb.getSheet("empty");
+			assertEquals(0, sheet.getLastRowNum());
+			assertTrue(sheet.getRow(0).getCell(0).getBooleanCellValue());
+			assertEquals("x", sheet.getRow(0).getCell(1).getStringCellValue());
+			assertEquals("A1:B1", sheet.getCTWorksheet().getDimension().getRef());
+		}
+	}
+
+	@Test
+	public void testStaleDimensionFallsBackToScan() throws Exception {
+		File file = createWorkbook();
+		// dimension只覆盖到第2行，实际数据有3行
+		rewriteReportSheet(file, "<dimension ref=\"A1:D3\"/>", "<dimension ref=\"A1:D2\"/>");
+		XlsxAppender.append(file, "report", Collections.singletonList(Arrays.asList("c", 3)));
+
+		try (FileInputStream in = new FileInputStream(file); XSSFWorkbook wb = new XSSFWorkbook(in)) {
+			XSSFSheet sheet = wb.getSheet("report");
+			assertEquals(3, sheet.getLastRowNum());
+			assertEquals("b", sheet.getRow(2).getCell(0).getStringCellValue());
+			assertEquals("c", sheet.getRow(3).getCell(0).getStringCellValue());
+			assertEquals("A1:C4", sheet.getCTWorksheet().getDimension().getRef());
+		}
+	}
+
+	@Test
+	public void testMissingDimensionIsAdded() throws Exception {
+		File file = createWorkbook();
+		rewriteReportSheet(file, "<dimension ref=\"A1:D3\"/>", "");
+		XlsxAppender.append(file, "report", Collections.singletonList(Arrays.asList("c", 3)));
+
+		try (FileInputStream in = new FileInputStream(file); XSSFWorkbook wb = new XSSFWorkbook(in)) {
+			XSSFSheet sheet = wb.getSheet("report");
+			assertEquals(3, sheet.getLastRowNum());
+			assertEquals("A1:C4", sheet.getCTWorksheet().getDimension().getRef());
+		}
+	}
+
+	@Test
+	public void testAppendBeyondExcelLimitsIsRejected() throws Exception {
+		File file = createWorkbook();
+		// 已用区域到第1048575行，只能再追加一行
+		rewriteReportSheet(file, "<dimension ref=\"A1:D3\"/>", "<dimension ref=\"A1:D1048575\"/>");
+		byte[] original = Files.readAllBytes(file.toPath());
+
+		assertRejected(file, Arrays.asList(Arrays.asList("x"), Arrays.asList("y")));
+		assertRejected(file, Collections.singletonList(Collections.nCopies(16385, "z")));
+		assertArrayEquals(original, Files.readAllBytes(file.toPath()));
+
+		XlsxAppender.append(file, "report", Collections.singletonList(Arrays.asList("x")));
+		try (FileInputStream in = new FileInputStream(file); XSSFWorkbook wb = new XSSFWorkbook(in)) {
+			assertEquals("x", wb.getSheet("report").getRow(1048575).getCell(0).getStringCellValue());
+		}
+	}
+
+	private static void assertRejected(File file, List<? extends List<?>> rows) throws Exception {
+		try {
+			XlsxAppender.append(file, "report", rows);
+			fail("Expected append to be rejected");
+		} catch (IllegalArgumentException expected) {
+			// 超出.xlsx的行列上限
+		}
+	}
+
+	/**
+	 * 改写report sheet的XML，用来构造dimension不准确或缺失的文件
+	 */
+	private void rewriteReportSheet(File file, String search, String replacement) throws Exception {
+		File rewritten = folder.newFile("rewritten.xlsx");
+		try (ZipFile zip = new ZipFile(file); ZipArchiveOutputStream out = new ZipArchiveOutputStream(rewritten)) {
+			Enumeration<ZipArchiveEntry> entries = zip.getEntries();
+			while (entries.hasMoreElements()) {
+				ZipArchiveEntry entry = entries.nextElement();
+				byte[] data;
+				try (InputStream in = zip.getInputStream(entry)) {
+					data = IOUtils.toByteArray(in);
+				}
+				if (REPORT_SHEET_PART.equals(entry.getName())) {
+					String xml = new String(data, StandardCharsets.UTF_8);
+					assertTrue(xml.contains(search));
+					data = xml.replace(search, replacement).getBytes(StandardCharsets.UTF_8);
+				}
+				out.putArchiveEntry(new ZipArchiveEntry(entry.getName()));
+				out.write(data);
+				out.closeArchiveEntry();
+			}
+		}
+		Files.move(rewritten.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private File createWorkbook() throws Exception {
+		File file = folder.newFile("report.xlsx");
+		try (XSSFWorkbook wb = new XSSFWorkbook()) {
+			CellStyle dateStyle = wb.createCellStyle();
+			dateStyle.setDataFormat(wb.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd"));
+
+			XSSFSheet sheet = wb.createSheet("report");
+			Row header = sheet.createRow(0);
+			header.createCell(0).setCellValue("name");
+			header.createCell(1).setCellValue("count");
+			header.createCell(2).setCellValue("date");
+			for (int i = 1; i <= 2; i++) {
+				Row row = sheet.createRow(i);
+				row.createCell(0).setCellValue(i == 1 ? "a" : "b");
+				row.createCell(1).setCellValue(i);
+				row.createCell(2).setCellValue(43100 + i);
+				row.getCell(2).setCellStyle(dateStyle);
+			}
+			wb.createSheet("empty");
+			wb.createSheet("other").createRow(0).createCell(0).setCellValue("untouched");
+
+			try (FileOutputStream out = new FileOutputStream(file)) {
+				wb.write(out);
+			}
+		}
+		return file;
+	}
+}
@@ -0,0 +1,77 @@
+package com.ihmhny.poi.format;
+
+import org.apache.poi.ss.usermodel.DataFormatter;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * DataFormatCompiler与DataFormatter的吞吐量对比。
+ * <p>
+ * 类名不以Test结尾，不会在mvn test中执行，需要时手动运行：
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/classes:target/test-classes:$(cat target/cp.txt) com.ihmhny.poi.format.DataFormatCompilerBenchmark
+ * </pre>
+ */
+public final class DataFormatCompilerBenchmark {
+
+	private static final int CUSTOM_INDEX = 164;
+
+	private static final int CELLS = 200000;
+
+	private static final int WARMUP_ROUNDS = 10;
+
+	private static final int MEASURED_ROUNDS = 10;
+
+	private DataFormatCompilerBenchmark() {
+	}
+
+	public static void main(String[] args) {
+		Random random = new Random(2018);
+		double[] numbers = new double[CELLS];
+		double[] dates = new double[CELLS];
+		for (int i = 0; i < CELLS; i++) {
+			numbers[i] = Math.round((random.nextDouble() - 0.5) * 1.0E10) / 1000.0;
+			// 2000年到2030年之间带时间的日期
+			dates[i] = 36526 + random.nextDouble() * 11000;
+		}
+		run("#,##0.0000", numbers);
+		run("0.00", numbers);
+		run("0.00%", numbers);
+		run("yyyy-mm-dd hh:mm:ss", dates);
+		run("m/d/yy", dates);
+	}
+
+	private static void run(String format, double[] values) {
+		DataFormatCompiler compiler = new DataFormatCompiler(Locale.US, false);
+		DataFormatter dataFormatter = new DataFormatter(Locale.US);
+		StringBuilder out = new StringBuilder();
+		long checksum = 0;
+		long compiledNanos = Long.MAX_VALUE;
+		long dataFormatterNanos = Long.MAX_VALUE;
+		for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+			long start = System.nanoTime();
+			for (double value : values) {
+				out.setLength(0);
+				compiler.formatNumber(value, CUSTOM_INDEX, format, out);
+				checksum += out.length();
+			}
+			long compiled = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for (double value : values) {
+				checksum += dataFormatter.formatRawCellContents(value, CUSTOM_INDEX, format).length();
+			}
+			long formatter = System.nanoTime() - start;
+
+			if (round >= WARMUP_ROUNDS) {
+				compiledNanos = Math.min(compiledNanos, compiled);
+				dataFormatterNanos = Math.min(dataFormatterNanos, formatter);
+			}
+		}
+		System.out.printf("%-22s DataFormatCompiler %7.1f ns/cell, DataFormatter %7.1f ns/cell, %5.1fx (checksum %d)%n",
+				format, (double) compiledNanos / values.length, (double) dataFormatterNanos / values.length,
+				(double) dataFormatterNanos / compiledNanos, checksum);
+	}
+}
@@ -0,0 +1,90 @@
+package com.ihmhny.poi.format;
+
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class DataFormatCompilerTest {
+
+	private static final int CUSTOM_INDEX = 164;
+
+	private final DataFormatCompiler compiler = new DataFormatCompiler(Locale.US, false);
+
+	private final DataFormatter dataFormatter = new DataFormatter(Locale.US);
+
+	@Test
+	public void testNumberFormatsMatchDataFormatter() {
+		String[] formats = {"0", "0.0", "0.00", "#,##0", "#,##0.0000", "0%", "0.00%", "$#,##0.00", "#.##", "#.0#"};
+		double[] values = {0, 1, -1, 0.5, 11111.25, 11111111111.25, -1234.5678, 0.125, 12.3456,
+				// 二进制值略小于.5的十进制中点，需按15位有效数字舍入
+				1064.485, 9873.005, -8317.095, 2.675, 1.005, 1.00005, 99999.995, 0.00125};
+		for (String format : formats) {
+			for (double value : values) {
+				assertFormat(value, format);
+			}
+		}
+	}
+
+	@Test
+	public void testDateFormatsMatchDataFormatter() {
+		String[] formats = {"m/d/yy h:mm", "m/d/yy", "yyyy-mm-dd", "yyyy-mm-dd hh:mm:ss", "h:mm AM/PM",
+				"d-mmm-yy", "mmmm d, yyyy", "mm:ss"};
+		// 2018-01-01 12:00、1970-01-01 00:00、2000-02-29 08:30:15
+		double[] values = {43101.5, 25569, 36585.35434027778, 1};
+		for (String format : formats) {
+			for (double value : values) {
+				assertFormat(value, format);
+			}
+		}
+	}
+
+	@Test
+	public void testRandomValuesMatchDataFormatter() {
+		Random random = new Random(2018);
+		for (int i = 0; i < 1000; i++) {
+			double value = Math.round((random.nextDouble() - 0.5) * 1.0E10) / 1000.0;
+			assertFormat(value, "#,##0.0000");
+			assertFormat(value, "0.00");
+		}
+	}
+
+	@Test
+	public void testGeneralAndFallback() {
+		assertFormat(42, "General");
+		assertFormat(-3.14159, "General");
+		assertFormat(1234.5, "#,##0.00;[Red]-#,##0.00");
+		assertFormat(-1234.5, "#,##0.00;[Red]-#,##0.00");
+	}
+
+	@Test
+	public void testCompiledFormatIsCached() {
+		CompiledFormat first = compiler.compile(CUSTOM_INDEX, "#,##0.0000");
+		assertSame(first, compiler.compile(CUSTOM_INDEX, "#,##0.0000"));
+		assertEquals("0.0", compiler.compile(CUSTOM_INDEX, "0.0").getFormatString());
+		assertSame(compiler.compile(14, null), compiler.compile(14, "m/d/yy"));
+	}
+
+	@Test
+	public void testSerialToJavaTime() {
+		assertEquals(LocalDate.of(1900, 1, 1), ExcelDates.toLocalDate(1, false));
+		assertEquals(LocalDate.of(1900, 2, 28), ExcelDates.toLocalDate(59, false));
+		assertEquals(LocalDate.of(1900, 3, 1), ExcelDates.toLocalDate(61, false));
+		assertEquals(LocalDate.of(1904, 1, 1), ExcelDates.toLocalDate(0, true));
+		assertEquals(LocalDateTime.of(2018, 1, 1, 12, 0), ExcelDates.toLocalDateTime(43101.5, false));
+		assertEquals(LocalDateTime.of(2018, 1, 2, 0, 0), ExcelDates.toLocalDateTime(43101.9999999999, false));
+	}
+
+	private void assertFormat(double value, String format) {
+		String expected = dataFormatter.formatRawCellContents(value, CUSTOM_INDEX, format);
+		StringBuilder out = new StringBuilder();
+		compiler.formatNumber(value, CUSTOM_INDEX, format, out);
+		assertEquals(format + " -> " + value, expected, out.toString());
+	}
+}